@@ -0,0 +1,108 @@
+package ru.productinventory.bench;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import ru.productinventory.model.Address;
+import ru.productinventory.model.Location;
+import ru.productinventory.model.Organization;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput (rows/s) of the Organization mapping against a PostgreSQL database with db/migration applied.
+ * {@code batchSize=0} reproduces the previous one-INSERT-per-row behaviour; {@code reWriteBatchedInserts} lets
+ * pgjdbc send each batch as multi-row INSERTs.
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="InsertBatchingBenchmark -jvmArgsAppend -Dbench.jdbc.url=jdbc:postgresql://localhost/inventory"
+ * </pre>
+ * {@code bench.jdbc.user} and {@code bench.jdbc.password} default to postgres / empty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InsertBatchingBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"0", "50"})
+    public int batchSize;
+
+    @Param({"false", "true"})
+    public boolean reWriteBatchedInserts;
+
+    private SessionFactory sessionFactory;
+    private final String run = "bench-" + UUID.randomUUID() + "-";
+    private long seq;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/postgres");
+        sessionFactory = new Configuration()
+                .addResource("mapping/Organization.hbm.xml")
+                .setProperty("hibernate.connection.url",
+                        url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=" + reWriteBatchedInserts)
+                .setProperty("hibernate.connection.username", System.getProperty("bench.jdbc.user", "postgres"))
+                .setProperty("hibernate.connection.password", System.getProperty("bench.jdbc.password", ""))
+                .setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize))
+                .setProperty("hibernate.order_inserts", "true")
+                .buildSessionFactory();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertOrganizations() {
+        try (Session s = sessionFactory.openSession()) {
+            Transaction tx = s.beginTransaction();
+            for (int i = 0; i < ROWS; i++) {
+                s.persist(organization(run + seq++));
+            }
+            tx.commit();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp() {
+        try (Session s = sessionFactory.openSession()) {
+            Transaction tx = s.beginTransaction();
+            s.createMutationQuery("delete from Organization o where o.fullName like :p")
+                    .setParameter("p", run + "%")
+                    .executeUpdate();
+            tx.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    private static Organization organization(String fullName) {
+        Organization o = new Organization();
+        o.setName(fullName);
+        o.setFullName(fullName);
+        o.setAnnualTurnover(1000.0);
+        o.setEmployeesCount(10);
+        o.setRating(5);
+        o.setOfficialAddress(address());
+        o.setPostalAddress(address());
+        return o;
+    }
+
+    private static Address address() {
+        Location town = new Location();
+        town.setX(1L);
+        town.setY(2L);
+        town.setName("Town");
+        Address a = new Address();
+        a.setZipCode("190000");
+        a.setTown(town);
+        return a;
+    }
+}
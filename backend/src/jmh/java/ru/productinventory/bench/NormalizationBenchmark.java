@@ -0,0 +1,102 @@
+package ru.productinventory.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.productinventory.util.NormalizationUtil;
+
+import java.text.Normalizer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-key cost of {@link NormalizationUtil} against the previous regex-based implementation, kept here as
+ * {@link Legacy}. Keys are generated the way import files look: org full names, owner names and part numbers.
+ * <ul>
+ *     <li>{@code clean}: already canonical keys.</li>
+ *     <li>{@code messy}: the same keys with padding, doubled spaces, tabs, NBSP and spaced dashes.</li>
+ *     <li>{@code cyrillic}: Cyrillic names, which take the NFC path.</li>
+ * </ul>
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="NormalizationBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NormalizationBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"clean", "messy", "cyrillic"})
+    public String keys;
+
+    private String[] names;
+    private String[] partNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(42);
+        names = new String[KEYS];
+        partNumbers = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            String name = switch (keys) {
+                case "cyrillic" -> "ООО «Торговый дом " + i + "»  Северо-Запад";
+                case "messy" -> "  Acme\u00A0Industrial  Supply\tCo " + i + "  ";
+                default -> "Acme Industrial Supply Co " + i;
+            };
+            String pn = switch (keys) {
+                case "messy" -> " ab " + rnd.nextInt(1000) + " \u2013 " + i + "_x ";
+                default -> "AB" + rnd.nextInt(1000) + "-" + i + "-X";
+            };
+            names[i] = name;
+            partNumbers[i] = pn;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void canonicalKey(Blackhole bh) {
+        for (String s : names) bh.consume(NormalizationUtil.canonicalKey(s, true));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void canonicalKeyLegacy(Blackhole bh) {
+        for (String s : names) bh.consume(Legacy.canonicalKey(s, true));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void canonicalPartNumber(Blackhole bh) {
+        for (String s : partNumbers) bh.consume(NormalizationUtil.canonicalPartNumber(s));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void canonicalPartNumberLegacy(Blackhole bh) {
+        for (String s : partNumbers) bh.consume(Legacy.canonicalPartNumber(s));
+    }
+
+    /** NormalizationUtil as it was before the single-pass rewrite. */
+    static final class Legacy {
+        static String canonicalKey(String s, boolean lower) {
+            if (s == null) return null;
+            String t = s.strip()
+                    .replace('\u00A0', ' ')
+                    .replaceAll("\\s+", " ");
+            t = Normalizer.normalize(t, Normalizer.Form.NFC);
+            return lower ? t.toLowerCase() : t;
+        }
+
+        static String canonicalPartNumber(String pn) {
+            if (pn == null) return null;
+            String t = canonicalKey(pn, false);
+            t = t.replace('\u2013', '-').replace('\u2014', '-');
+            t = t.replaceAll("\\s*[-_]\\s*", "-");
+            return t.toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.productinventory.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The connection pools of {@code datasource.mode=pool}, sized and tuned by the {@code datasource.pool.*} properties,
+ * and closed with the context. The pgjdbc settings keep server-side prepared statements per connection for the
+ * repeated queries, and let JDBC batches of inserts go out as multi-row inserts.
+ */
+public class ConnectionPools implements AutoCloseable {
+
+    private final Environment env;
+    private final MetricsTrackerFactory metrics;
+    private final List<HikariDataSource> pools = new CopyOnWriteArrayList<>();
+
+    public ConnectionPools(Environment env, MetricsTrackerFactory metrics) {
+        this.env = env;
+        this.metrics = metrics;
+    }
+
+    /**
+     * A replica pool does not fail startup when its server is down, and gives up on a connection after
+     * {@code datasource.replica.connection-timeout-ms}, so {@link ReplicaDataSource} moves on to the next replica
+     * instead of waiting out the primary's timeout.
+     */
+    public HikariDataSource open(String name, String url, boolean replica) {
+        HikariConfig c = new HikariConfig();
+        c.setPoolName(name);
+        c.setJdbcUrl(url);
+        c.setUsername(env.getProperty("datasource.pool.username"));
+        c.setPassword(env.getProperty("datasource.pool.password"));
+        c.setMaximumPoolSize(env.getProperty("datasource.pool.max-size", Integer.class, 20));
+        c.setMinimumIdle(env.getProperty("datasource.pool.min-idle", Integer.class, c.getMaximumPoolSize()));
+        c.setConnectionTimeout(env.getProperty("datasource.pool.connection-timeout-ms", Long.class, 30_000L));
+        c.setIdleTimeout(env.getProperty("datasource.pool.idle-timeout-ms", Long.class, 600_000L));
+        c.setMaxLifetime(env.getProperty("datasource.pool.max-lifetime-ms", Long.class, 1_800_000L));
+        c.setKeepaliveTime(env.getProperty("datasource.pool.keepalive-time-ms", Long.class, 0L));
+        c.setValidationTimeout(env.getProperty("datasource.pool.validation-timeout-ms", Long.class, 5_000L));
+        c.setMetricsTrackerFactory(metrics);
+
+        c.addDataSourceProperty("prepareThreshold", env.getProperty("datasource.pool.prepare-threshold", "3"));
+        c.addDataSourceProperty("preparedStatementCacheQueries",
+                env.getProperty("datasource.pool.statement-cache-queries", "512"));
+        c.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                env.getProperty("datasource.pool.statement-cache-size-mib", "10"));
+        c.addDataSourceProperty("reWriteBatchedInserts",
+                env.getProperty("datasource.pool.rewrite-batched-inserts", "true"));
+
+        if (replica) {
+            c.setInitializationFailTimeout(-1);
+            c.setConnectionTimeout(env.getProperty("datasource.replica.connection-timeout-ms", Long.class, 1_000L));
+        }
+        HikariDataSource ds = new HikariDataSource(c);
+        pools.add(ds);
+        return ds;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
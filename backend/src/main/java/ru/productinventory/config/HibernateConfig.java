@@ -1,33 +1,141 @@
 package ru.productinventory.config;
 
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.CacheMode;
 import org.hibernate.SessionFactory;
 import org.springframework.context.annotation.*;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.orm.hibernate5.SessionHolder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.service.PoolMetrics;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.Properties;
 
 @Configuration
 @EnableTransactionManagement
+@PropertySource("classpath:application.properties")
 public class HibernateConfig {
 
+    /** Second-level cache regions; Organization.hbm.xml and Person.hbm.xml name theirs. */
+    public static final String ORGANIZATION_REGION = "organization";
+    public static final String PERSON_REGION = "person";
+    /** Results of the business-key lookups: normalized key to entity id. */
+    public static final String BUSINESS_KEY_REGION = "business-keys";
+    private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private final Environment env;
+
+    public HibernateConfig(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * The primary, or with {@code datasource.replicas} set, a proxy that sends read-only transactions to the
+     * replicas. The proxy takes a physical connection only at the first statement, by when the transaction manager
+     * has marked the connection read-only; that mark selects {@link ReplicaDataSource}.
+     * <p>
+     * {@code datasource.mode=jndi} (the default) looks the DataSources up, the container pooling their connections;
+     * {@code datasource.mode=pool} opens pools of its own, see {@link ConnectionPools}.
+     */
     @Bean
-    public DataSource dataSource() {
+    public DataSource dataSource(ConnectionPools pools) {
+        String mode = env.getProperty("datasource.mode", "jndi");
+        boolean pooled = switch (mode) {
+            case "jndi" -> false;
+            case "pool" -> true;
+            default -> throw new IllegalStateException("Unknown datasource.mode " + mode + " (jndi or pool)");
+        };
+        if (pooled && env.getProperty("datasource.pool.url", "").isBlank())
+            throw new IllegalStateException("datasource.mode=pool needs datasource.pool.url");
+        DataSource primary = pooled
+                ? pools.open("primary", env.getProperty("datasource.pool.url"), false)
+                : lookup(env.getProperty("datasource.jndi-name", "java:/ProductInventoryDS"));
+        List<String> replicaNames = replicaNames();
+        if (replicaNames.isEmpty()) return primary;
+
+        List<DataSource> replicaSources = new ArrayList<>();
+        for (String name : replicaNames) {
+            replicaSources.add(pooled ? pools.open("replica-" + replicaSources.size(), name, true) : lookup(name));
+        }
+        DataSource replicas = new ReplicaDataSource(primary, replicaSources,
+                env.getProperty("datasource.replica.max-lag-ms", Long.class, 5_000L),
+                env.getProperty("datasource.replica.recheck-ms", Long.class, 1_000L));
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replicas);
+        return routing;
+    }
+
+    /** Holds the pools of {@code datasource.mode=pool}; none are opened in JNDI mode. */
+    @Bean(destroyMethod = "close")
+    public ConnectionPools connectionPools(PoolMetrics metrics) {
+        return new ConnectionPools(env, metrics);
+    }
+
+    /** JNDI names in JNDI mode, JDBC URLs in pool mode. */
+    private List<String> replicaNames() {
+        return Arrays.stream(env.getProperty("datasource.replicas", "").split(","))
+                .map(String::trim)
+                .filter(n -> !n.isEmpty())
+                .toList();
+    }
+
+    private static DataSource lookup(String jndiName) {
         try {
-            return (DataSource) new InitialContext().lookup("java:/ProductInventoryDS");
+            return (DataSource) new InitialContext().lookup(jndiName);
         } catch (NamingException e) {
-            throw new IllegalStateException("JNDI DataSource java:/ProductInventoryDS not found", e);
+            throw new IllegalStateException("JNDI DataSource " + jndiName + " not found", e);
         }
     }
 
+    /**
+     * Caffeine-backed JCache manager holding every Hibernate cache region, each bounded by its
+     * {@code cache.*.max-entries}. The update-timestamps region is unbounded: evicting from it would let cached
+     * query results outlive writes.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManager() {
+        CacheManager cm = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        cm.createCache(ORGANIZATION_REGION, region(maxEntries("cache.organization.max-entries")));
+        cm.createCache(PERSON_REGION, region(maxEntries("cache.person.max-entries")));
+        cm.createCache(BUSINESS_KEY_REGION, region(maxEntries("cache.business-keys.max-entries")));
+        cm.createCache(DEFAULT_QUERY_REGION, region(1_000L));
+        cm.createCache(TIMESTAMPS_REGION, region(null));
+        return cm;
+    }
+
+    private Long maxEntries(String property) {
+        return env.getProperty(property, Long.class, 10_000L);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(Long maxEntries) {
+        var c = new CaffeineConfiguration<>();
+        c.setMaximumSize(maxEntries == null ? OptionalLong.empty() : OptionalLong.of(maxEntries));
+        c.setNativeStatisticsEnabled(true);
+        c.setStoreByValue(false);
+        return c;
+    }
+
     @Bean
-    public LocalSessionFactoryBean sessionFactory(DataSource ds) {
+    public LocalSessionFactoryBean sessionFactory(DataSource ds, CacheManager cacheManager) {
         LocalSessionFactoryBean sf = new LocalSessionFactoryBean();
         sf.setDataSource(ds);
         sf.setMappingLocations(
@@ -43,6 +151,16 @@ public class HibernateConfig {
         p.put("hibernate.show_sql", "false");
         p.put("hibernate.format_sql", "true");
         p.put("hibernate.jdbc.time_zone", "UTC");
+        p.put("hibernate.query.in_clause_parameter_padding", "true");
+        p.put("hibernate.jdbc.batch_size", env.getProperty("hibernate.jdbc.batch_size", "50"));
+        p.put("hibernate.jdbc.batch_versioned_data", "true");
+        p.put("hibernate.order_inserts", "true");
+        p.put("hibernate.order_updates", "true");
+        p.put("hibernate.cache.use_second_level_cache", "true");
+        p.put("hibernate.cache.use_query_cache", "true");
+        p.put("hibernate.cache.region.factory_class", "jcache");
+        p.put("hibernate.javax.cache.cache_manager", cacheManager);
+        p.put("hibernate.javax.cache.missing_cache_strategy", "fail");
         p.put("hibernate.current_session_context_class", "org.springframework.orm.hibernate5.SpringSessionContext");
         sf.setHibernateProperties(p);
         return sf;
@@ -50,6 +168,28 @@ public class HibernateConfig {
 
     @Bean
     public PlatformTransactionManager transactionManager(SessionFactory sf) {
-        return new HibernateTransactionManager(sf);
+        if (replicaNames().isEmpty()) return new HibernateTransactionManager(sf);
+        return new HibernateTransactionManager(sf) {
+            /**
+             * A replica may not have replayed a write the second-level cache already holds; read-only sessions
+             * use the cache but do not put what they load into it.
+             */
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+                super.doBegin(transaction, definition);
+                if (definition.isReadOnly()) {
+                    var holder = (SessionHolder) TransactionSynchronizationManager.getResource(obtainSessionFactory());
+                    holder.getSession().setCacheMode(CacheMode.GET);
+                }
+            }
+        };
+    }
+
+    /** Periodic database upkeep that is not tied to a request, such as folding the change log (ChangeVersions). */
+    @Bean
+    public ThreadPoolTaskScheduler maintenanceScheduler() {
+        ThreadPoolTaskScheduler s = new ThreadPoolTaskScheduler();
+        s.setThreadNamePrefix("maintenance-");
+        return s;
     }
 }
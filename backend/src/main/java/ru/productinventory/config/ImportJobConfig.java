@@ -0,0 +1,49 @@
+package ru.productinventory.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class ImportJobConfig {
+
+    private final Environment env;
+
+    public ImportJobConfig(Environment env) {
+        this.env = env;
+    }
+
+    /** Runs asynchronous import jobs; submissions beyond the queue capacity are rejected. */
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor() {
+        int workers = env.getProperty("import.jobs.workers", Integer.class, 2);
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(workers);
+        ex.setMaxPoolSize(workers);
+        ex.setQueueCapacity(env.getProperty("import.jobs.queue-capacity", Integer.class, 16));
+        ex.setThreadNamePrefix("import-job-");
+        return ex;
+    }
+
+    /** Renews import leases and fails imports whose lease has lapsed; see {@code ImportLeases}. */
+    @Bean
+    public ThreadPoolTaskScheduler importLeaseScheduler() {
+        ThreadPoolTaskScheduler s = new ThreadPoolTaskScheduler();
+        s.setThreadNamePrefix("import-lease-");
+        return s;
+    }
+
+    /** Validates import chunks in parallel; callers bound the number of chunks in flight themselves. */
+    @Bean
+    public ThreadPoolTaskExecutor validationExecutor() {
+        int workers = env.getProperty("import.validation.workers", Integer.class, 0);
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(workers);
+        ex.setMaxPoolSize(workers);
+        ex.setThreadNamePrefix("import-validation-");
+        return ex;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.productinventory.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions, taken from the replicas in turn. A replica that refuses a connection, or
+ * whose replay lags the primary by more than {@code maxLagMs}, is skipped for {@code recheckMs}; lag is measured
+ * at most once per {@code recheckMs} per replica; a skipped replica is then retried by one caller at a time. With no
+ * replica usable, connections come from the primary.
+ */
+public class ReplicaDataSource extends AbstractDataSource {
+
+    /**
+     * Replay delay in ms: 0 once all received WAL is replayed (after a restart the receive position restarts at a
+     * segment start, behind replay), and on a server that is not a standby.
+     */
+    private static final String LAG_SQL = """
+            select case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() <= pg_last_wal_replay_lsn() then 0
+                        else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   end::bigint
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final long recheckNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, long maxLagMs, long recheckMs) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMs = maxLagMs;
+        this.recheckNanos = TimeUnit.MILLISECONDS.toNanos(recheckMs);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Connection c = replicas.get((start + i) % n).connect();
+            if (c != null) return c;
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    private final class Replica {
+        private final DataSource ds;
+        private volatile long skipUntil = System.nanoTime();
+        private volatile long checkDueAt = System.nanoTime();
+        /** Set while skipped; once {@code skipUntil} passes, one caller at a time probes the replica again. */
+        private volatile boolean skipped;
+        private final AtomicBoolean probing = new AtomicBoolean();
+
+        Replica(DataSource ds) {
+            this.ds = ds;
+        }
+
+        /** A connection within the lag bound, or null if this replica is skipped. */
+        Connection connect() {
+            long now = System.nanoTime();
+            if (now - skipUntil < 0) return null;
+            if (!skipped) return tryConnect(now);
+            if (!probing.compareAndSet(false, true)) return null;
+            try {
+                return tryConnect(now);
+            } finally {
+                probing.set(false);
+            }
+        }
+
+        private Connection tryConnect(long now) {
+            Connection c;
+            try {
+                c = ds.getConnection();
+            } catch (SQLException e) {
+                skip(now);
+                return null;
+            }
+            if (now - checkDueAt < 0) {
+                skipped = false;
+                return c;
+            }
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(LAG_SQL)) {
+                rs.next();
+                checkDueAt = now + recheckNanos;
+                if (rs.getLong(1) <= maxLagMs) {
+                    skipped = false;
+                    return c;
+                }
+            } catch (SQLException ignored) {
+                // unusable connection: handled as a lagging replica
+            }
+            skip(now);
+            close(c);
+            return null;
+        }
+
+        private void skip(long now) {
+            skipUntil = now + recheckNanos;
+            skipped = true;
+        }
+
+        private void close(Connection c) {
+            try {
+                c.close();
+            } catch (SQLException ignored) {
+                // already broken
+            }
+        }
+    }
+}
@@ -1,11 +1,64 @@
 package ru.productinventory.config;
 
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import ru.productinventory.service.RetryMetrics;
+import ru.productinventory.util.SerializationFailures;
 
+/**
+ * Retry of SERIALIZABLE transactions that PostgreSQL aborted with a serialization failure or deadlock. Methods opt in
+ * with {@code @Retryable(interceptor = RetryConfig.SERIALIZATION_RETRY)}; the retry advice runs outside the
+ * transaction, so each attempt is a fresh transaction. Waits grow exponentially with random jitter, so transactions
+ * that collided once do not collide again in lockstep.
+ */
 @Configuration
 @EnableRetry
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 public class RetryConfig {
-}
\ No newline at end of file
+
+    public static final String SERIALIZATION_RETRY = "serializationRetry";
+
+    private final Environment env;
+
+    public RetryConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean
+    public RetryTemplate serializationRetryTemplate(RetryMetrics metrics) {
+        var backOff = new ExponentialRandomBackOffPolicy();
+        backOff.setInitialInterval(env.getProperty("retry.serialization.initial-interval-ms", Long.class, 20L));
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(env.getProperty("retry.serialization.max-interval-ms", Long.class, 1_000L));
+
+        var retryable = new BinaryExceptionClassifier(false) {
+            @Override
+            public Boolean classify(Throwable t) {
+                return SerializationFailures.isSerializationFailure(t);
+            }
+        };
+
+        var template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy(
+                env.getProperty("retry.serialization.max-attempts", Integer.class, 5), retryable));
+        template.setBackOffPolicy(backOff);
+        template.registerListener(metrics);
+        return template;
+    }
+
+    @Bean(SERIALIZATION_RETRY)
+    public RetryOperationsInterceptor serializationRetry(RetryTemplate serializationRetryTemplate) {
+        return RetryInterceptorBuilder.stateless()
+                .retryOperations(serializationRetryTemplate)
+                .build();
+    }
+}
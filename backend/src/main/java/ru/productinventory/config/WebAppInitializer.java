@@ -55,8 +55,8 @@ public class WebAppInitializer extends AbstractAnnotationConfigDispatcherServlet
 
     @Override
     protected void customizeRegistration(ServletRegistration.Dynamic registration) {
-        long maxFileSize = 10L * 1024 * 1024;
-        long maxRequestSize = 20L * 1024 * 1024;
+        long maxFileSize = 4L * 1024 * 1024 * 1024;
+        long maxRequestSize = maxFileSize + 1024 * 1024;
         int fileSizeThreshold = 0;
 
         registration.setMultipartConfig(new MultipartConfigElement(
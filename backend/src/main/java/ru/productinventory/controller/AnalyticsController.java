@@ -0,0 +1,32 @@
+package ru.productinventory.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.productinventory.dto.analytics.ManufacturerStatsDTO;
+import ru.productinventory.dto.analytics.OwnerDistributionDTO;
+import ru.productinventory.dto.analytics.UnitStatsDTO;
+import ru.productinventory.service.AnalyticsService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+    private final AnalyticsService service;
+
+    @GetMapping("/manufacturers")
+    public List<ManufacturerStatsDTO> manufacturers(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return service.manufacturers(limit);
+    }
+
+    @GetMapping("/units")
+    public List<UnitStatsDTO> units() {
+        return service.units();
+    }
+
+    @GetMapping("/owners")
+    public OwnerDistributionDTO owners(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return service.owners(limit);
+    }
+}
@@ -0,0 +1,35 @@
+package ru.productinventory.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.WebRequest;
+import ru.productinventory.service.ChangeVersions;
+
+import java.util.function.Supplier;
+
+/** ETag for GET responses that only change with the change versions of some entity types. */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGet {
+    private final ChangeVersions versions;
+
+    /**
+     * 304 without calling {@code body} when the request's {@code If-None-Match} still matches; otherwise the body.
+     * The stamp and the body are read in one read-only transaction, i.e. on one connection, and the stamp first, so
+     * the body is never older than its tag; a change racing the read only makes the tag older than the body.
+     * There is no {@code Last-Modified}: with its 1 s resolution, a change in the same second would get a 304.
+     * {@code no-cache} makes clients revalidate instead of reusing the response on their own.
+     */
+    @Transactional(readOnly = true)
+    public <T> ResponseEntity<T> respond(WebRequest request, Supplier<T> body, String... entities) {
+        var stamp = versions.stamp(entities);
+        if (request.checkNotModified(stamp.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(body.get());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.productinventory.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import ru.productinventory.dto.imports.ImportJobDTO;
+import ru.productinventory.dto.imports.ImportResponse;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.service.ImportJobService;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/import/product/jobs")
+@RequiredArgsConstructor
+public class ImportJobController {
+    private final ImportJobService jobs;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> submit(@RequestPart("file") MultipartFile file,
+                                    @RequestParam(defaultValue = "orm") String mode) throws IOException {
+        ImportMode importMode = ImportMode.from(mode);
+
+        String ct = file.getContentType() != null ? file.getContentType() : "";
+        if (!ct.contains("json") && !MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE.equals(ct)) {
+            return ResponseEntity.badRequest().body(ImportResponse.failed(0, List.of(new ValidationError(-1, "file", "Expected JSON file"))));
+        }
+
+        try {
+            Long id = jobs.submit(file, importMode);
+            return ResponseEntity.accepted().body(jobs.status(id));
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ImportResponse.failed(0, List.of(new ValidationError(-1, "file", "Import queue is full, retry later"))));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ImportJobDTO status(@PathVariable Long id) {
+        return jobs.status(id);
+    }
+}
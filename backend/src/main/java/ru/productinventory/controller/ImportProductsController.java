@@ -1,10 +1,8 @@
 package ru.productinventory.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
-import jakarta.validation.Validator;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MimeTypeUtils;
@@ -13,73 +11,106 @@ import org.springframework.web.multipart.MultipartFile;
 import ru.productinventory.dto.imports.ImportResponse;
 import ru.productinventory.dto.imports.ProductImportDTO;
 import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.service.ChunkedImportService;
 import ru.productinventory.service.ProductImportService;
+import ru.productinventory.service.ProductImportValidator;
+import ru.productinventory.util.JsonArrayReader;
 
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/import/product")
 public class ImportProductsController {
 
     private final ObjectMapper objectMapper;
-    private final Validator validator;
+    private final ProductImportValidator importValidator;
     private final ProductImportService importService;
+    private final ChunkedImportService chunkedImport;
 
-    public ImportProductsController(ObjectMapper objectMapper, Validator validator, ProductImportService importService) {
+    public ImportProductsController(ObjectMapper objectMapper, ProductImportValidator importValidator,
+                                    ProductImportService importService, ChunkedImportService chunkedImport) {
         this.objectMapper = objectMapper;
-        this.validator = validator;
+        this.importValidator = importValidator;
         this.importService = importService;
+        this.chunkedImport = chunkedImport;
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ImportResponse> importJsonArray(@Valid @RequestBody List<ProductImportDTO> items) {
+    public ResponseEntity<ImportResponse> importJsonArray(@Valid @RequestBody List<ProductImportDTO> items,
+                                                          @RequestParam(defaultValue = "orm") String mode) throws IOException {
+        ImportMode importMode = ImportMode.from(mode);
 
-        var errors = validateAll(items);
+        var errors = importValidator.validate(items);
         if (!errors.isEmpty()) {
             return ResponseEntity.badRequest().body(ImportResponse.failed(0, errors));
         }
-        var result = importService.importAllTransactional(items);
+        var result = runImport(importMode, items);
         return ResponseEntity.status(result.getErrors().isEmpty() ? 200 : 400).body(result);
     }
 
     @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ImportResponse> importFromFile(@RequestPart("file") MultipartFile file) {
+    public ResponseEntity<ImportResponse> importFromFile(@RequestPart("file") MultipartFile file,
+                                                         @RequestParam(defaultValue = "orm") String mode) throws IOException {
+        ImportMode importMode = ImportMode.from(mode);
 
-        String ct = file.getContentType() != null ? file.getContentType() : "";
-        if (!ct.contains("json") && !MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE.equals(ct)) {
+        if (!isJson(file)) {
             return ResponseEntity.badRequest().body(ImportResponse.failed(0, List.of(new ValidationError(-1, "file", "Expected JSON file"))));
         }
-
-        List<ProductImportDTO> items;
-        try (InputStream is = file.getInputStream()) {
-            items = objectMapper.readValue(is, new TypeReference<>() {
-            });
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(ImportResponse.failed(0, List.of(new ValidationError(-1, "file", "Invalid JSON: " + e.getMessage()))));
+        if (importMode == ImportMode.CHUNKED) {
+            return importChunked(file, null);
         }
 
-        var errors = validateAll(items);
+        // Two passes over the uploaded file: validate everything first, then stream it into the importer.
+        var errors = importValidator.validate(file);
         if (!errors.isEmpty()) {
             return ResponseEntity.badRequest().body(ImportResponse.failed(0, errors));
         }
 
-        var result = importService.importAllTransactional(items);
-        return ResponseEntity.status(result.getErrors().isEmpty() ? 200 : 400).body(result);
+        try (var items = JsonArrayReader.open(objectMapper, file.getInputStream(), ProductImportDTO.class)) {
+            var result = runImport(importMode, items);
+            return ResponseEntity.status(result.getErrors().isEmpty() ? 200 : 400).body(result);
+        }
     }
 
-    private List<ValidationError> validateAll(List<ProductImportDTO> items) {
-        List<ValidationError> errors = new ArrayList<>();
-        for (int i = 0; i < items.size(); i++) {
-            ProductImportDTO dto = items.get(i);
-            Set<ConstraintViolation<ProductImportDTO>> v = validator.validate(dto);
-            for (ConstraintViolation<?> cv : v) {
-                String path = "items[" + i + "]." + cv.getPropertyPath();
-                errors.add(new ValidationError(i, path, cv.getMessage()));
-            }
+    /** Continues a failed chunked import after its last checkpoint, optionally from a corrected file. */
+    @PostMapping(path = "/{id}/resume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportResponse> resume(@PathVariable Long id,
+                                                 @RequestPart(name = "file", required = false) MultipartFile file) throws IOException {
+        if (file == null) {
+            var result = chunkedImport.resume(id, null);
+            return ResponseEntity.status(result.getErrors().isEmpty() ? 200 : 400).body(result);
         }
-        return errors;
+        if (!isJson(file)) {
+            return ResponseEntity.badRequest().body(ImportResponse.failed(0, List.of(new ValidationError(-1, "file", "Expected JSON file"))));
+        }
+        return importChunked(file, id);
+    }
+
+    private ResponseEntity<ImportResponse> importChunked(MultipartFile file, Long resumeId) throws IOException {
+        Path spooled = chunkedImport.spool(file);
+        var errors = importValidator.validate(new FileSystemResource(spooled));
+        if (!errors.isEmpty()) {
+            Files.deleteIfExists(spooled);
+            return ResponseEntity.badRequest().body(ImportResponse.failed(0, errors));
+        }
+        var result = resumeId == null ? chunkedImport.start(spooled) : chunkedImport.resume(resumeId, spooled);
+        return ResponseEntity.status(result.getErrors().isEmpty() ? 200 : 400).body(result);
+    }
+
+    private static boolean isJson(MultipartFile file) {
+        String ct = file.getContentType() != null ? file.getContentType() : "";
+        return ct.contains("json") || MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE.equals(ct);
+    }
+
+    private ImportResponse runImport(ImportMode mode, Iterable<ProductImportDTO> items) throws IOException {
+        return switch (mode) {
+            case ORM -> importService.importAllTransactional(items);
+            case COPY -> importService.importAllBulkLoad(items);
+            case CHUNKED -> chunkedImport.start(chunkedImport.spool(items));
+        };
     }
 }
@@ -0,0 +1,37 @@
+package ru.productinventory.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.productinventory.dto.metrics.CacheRegionDTO;
+import ru.productinventory.dto.metrics.PoolMetricsDTO;
+import ru.productinventory.dto.metrics.RetryMetricsDTO;
+import ru.productinventory.service.CacheMetricsService;
+import ru.productinventory.service.PoolMetrics;
+import ru.productinventory.service.RetryMetrics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+    private final CacheMetricsService cache;
+    private final RetryMetrics retry;
+    private final PoolMetrics pool;
+
+    @GetMapping("/cache")
+    public List<CacheRegionDTO> cache() {
+        return cache.regions();
+    }
+
+    @GetMapping("/retry")
+    public List<RetryMetricsDTO> retry() {
+        return retry.operations();
+    }
+
+    /** Empty with {@code datasource.mode=jndi}: the container owns those pools. */
+    @GetMapping("/pool")
+    public List<PoolMetricsDTO> pool() {
+        return pool.pools();
+    }
+}
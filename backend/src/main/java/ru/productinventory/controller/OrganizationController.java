@@ -1,10 +1,16 @@
 package ru.productinventory.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
 import ru.productinventory.dto.organization.OrganizationCreateDTO;
 import ru.productinventory.dto.organization.OrganizationViewDTO;
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
 import ru.productinventory.service.OrganizationService;
 
@@ -15,10 +21,11 @@ import ru.productinventory.service.OrganizationService;
 public class OrganizationController {
 
     private final OrganizationService service;
+    private final ConditionalGet conditional;
 
     @GetMapping("/{id}")
-    public OrganizationViewDTO get(@PathVariable("id") Integer id) {
-        return service.get(id);
+    public ResponseEntity<OrganizationViewDTO> get(@PathVariable("id") Integer id, WebRequest request) {
+        return conditional.respond(request, () -> service.get(id), "organization");
     }
 
     @GetMapping
@@ -29,14 +36,18 @@ public class OrganizationController {
             @RequestParam(value = "size", defaultValue = "20") int size,
             @RequestParam(value = "sort", defaultValue = "id") String sort,
             @RequestParam(value = "dir", defaultValue = "asc") String dir,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
 
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "fullName", required = false) String fullName,
             @RequestParam(value = "officialTownName", required = false) String officialTownName,
-            @RequestParam(value = "postalTownName", required = false) String postalTownName
+            @RequestParam(value = "postalTownName", required = false) String postalTownName,
+            WebRequest request
     ) {
-        var resp = service.list(page, size, sort, dir, name, fullName, officialTownName, postalTownName);
-        return org.springframework.http.ResponseEntity.ok(resp);
+        CountMode countMode = CountMode.from(count);
+        return conditional.respond(request, () -> service.list(page, size, sort, dir, after, countMode,
+                name, fullName, officialTownName, postalTownName), "organization");
     }
 
 
@@ -45,12 +56,27 @@ public class OrganizationController {
         return ResponseEntity.ok(service.create(dto));
     }
 
+    /** All items in one transaction; 400 with per-item errors, and nothing applied, if any item fails. */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse<Integer>> batch(
+            @RequestBody BatchRequestDTO<OrganizationCreateDTO, Integer> req) {
+        var result = service.batch(req);
+        return result.getErrors().isEmpty() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> update(@PathVariable("id") Integer id, @RequestBody OrganizationCreateDTO dto) {
         service.update(id, dto);
         return ResponseEntity.noContent().build();
     }
 
+    /** JSON merge patch: only the fields present are changed, {@code null} clears a field. */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@PathVariable("id") Integer id, @RequestBody JsonNode patch) {
+        service.patch(id, patch);
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") Integer id) {
         service.delete(id);
@@ -1,8 +1,14 @@
 package ru.productinventory.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
 import ru.productinventory.dto.person.PersonCreateDTO;
 import ru.productinventory.dto.person.PersonViewDTO;
@@ -14,10 +20,11 @@ import ru.productinventory.service.PersonService;
 public class PersonController {
 
     private final PersonService service;
+    private final ConditionalGet conditional;
 
     @GetMapping("/{id}")
-    public PersonViewDTO get(@PathVariable("id") Long id) {
-        return service.get(id);
+    public ResponseEntity<PersonViewDTO> get(@PathVariable("id") Long id, WebRequest request) {
+        return conditional.respond(request, () -> service.get(id), "person");
     }
 
     @GetMapping
@@ -26,16 +33,19 @@ public class PersonController {
             @RequestParam(value = "size", defaultValue = "20") int size,
             @RequestParam(value = "sort", defaultValue = "id") String sort,
             @RequestParam(value = "dir", defaultValue = "asc") String dir,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
 
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "eyeColor", required = false) String eyeColorLike,
             @RequestParam(value = "hairColor", required = false) String hairColorLike,
             @RequestParam(value = "nationality", required = false) String nationalityLike,
-            @RequestParam(value = "locationName", required = false) String locationName
+            @RequestParam(value = "locationName", required = false) String locationName,
+            WebRequest request
     ) {
-        var pageResp = service.list(page, size, sort, dir,
-                name, eyeColorLike, hairColorLike, nationalityLike, locationName);
-        return ResponseEntity.ok(pageResp);
+        CountMode countMode = CountMode.from(count);
+        return conditional.respond(request, () -> service.list(page, size, sort, dir, after, countMode,
+                name, eyeColorLike, hairColorLike, nationalityLike, locationName), "person");
     }
 
 
@@ -44,12 +54,26 @@ public class PersonController {
         return ResponseEntity.ok(service.create(dto));
     }
 
+    /** All items in one transaction; 400 with per-item errors, and nothing applied, if any item fails. */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse<Long>> batch(@RequestBody BatchRequestDTO<PersonCreateDTO, Long> req) {
+        var result = service.batch(req);
+        return result.getErrors().isEmpty() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> update(@PathVariable("id") Long id, @RequestBody PersonCreateDTO dto) {
         service.update(id, dto);
         return ResponseEntity.noContent().build();
     }
 
+    /** JSON merge patch: only the fields present are changed, {@code null} clears a field. */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@PathVariable("id") Long id, @RequestBody JsonNode patch) {
+        service.patch(id, patch);
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
         service.delete(id);
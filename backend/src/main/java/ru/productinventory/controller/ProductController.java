@@ -1,23 +1,42 @@
 package ru.productinventory.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
+import ru.productinventory.dto.product.ExportFormat;
 import ru.productinventory.dto.product.ProductCreateDTO;
 import ru.productinventory.dto.product.ProductViewDTO;
+import ru.productinventory.service.ProductExportService;
 import ru.productinventory.service.ProductService;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 @RestController
 @RequestMapping("/product")
 @RequiredArgsConstructor
 public class ProductController {
 
+    /** Product views embed their manufacturer's and owner's names. */
+    private static final String[] VIEW_SOURCES = {"product", "organization", "person"};
+
     private final ProductService service;
+    private final ProductExportService exports;
+    private final ConditionalGet conditional;
 
     @GetMapping("/{id}")
-    public ProductViewDTO get(@PathVariable("id") Long id) {
-        return service.get(id);
+    public ResponseEntity<ProductViewDTO> get(@PathVariable("id") Long id, WebRequest request) {
+        return conditional.respond(request, () -> service.get(id), VIEW_SOURCES);
     }
 
 
@@ -27,15 +46,46 @@ public class ProductController {
             @RequestParam(value = "size", defaultValue = "20") int size,
             @RequestParam(value = "sort", defaultValue = "id") String sort,
             @RequestParam(value = "dir", defaultValue = "asc") String dir,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
 
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "partNumber", required = false) String partNumber,
             @RequestParam(value = "unit", required = false) String unitOfMeasureLike,
             @RequestParam(value = "organizationName", required = false) String organizationName,
-            @RequestParam(value = "personName", required = false) String personName
+            @RequestParam(value = "personName", required = false) String personName,
+            WebRequest request
     ) {
-        var pageResp = service.list(page, size, sort, dir, name, partNumber, unitOfMeasureLike, organizationName, personName);
-        return ResponseEntity.ok(pageResp);
+        CountMode countMode = CountMode.from(count);
+        return conditional.respond(request, () -> service.list(page, size, sort, dir, after, countMode,
+                name, partNumber, unitOfMeasureLike, organizationName, personName), VIEW_SOURCES);
+    }
+
+
+    /**
+     * All products matching the list filters, in id order, written to the response as they are read; the format is
+     * checked before anything is written.
+     */
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "partNumber", required = false) String partNumber,
+            @RequestParam(value = "unit", required = false) String unitOfMeasureLike,
+            @RequestParam(value = "organizationName", required = false) String organizationName,
+            @RequestParam(value = "personName", required = false) String personName,
+            HttpServletResponse response
+    ) throws IOException {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("products." + exportFormat.extension())
+                .build()
+                .toString());
+        exports.export(exportFormat, response.getOutputStream(),
+                name, partNumber, unitOfMeasureLike, organizationName, personName);
     }
 
 
@@ -44,12 +94,26 @@ public class ProductController {
         return ResponseEntity.ok(service.create(dto));
     }
 
+    /** All items in one transaction; 400 with per-item errors, and nothing applied, if any item fails. */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse<Long>> batch(@RequestBody BatchRequestDTO<ProductCreateDTO, Long> req) {
+        var result = service.batch(req);
+        return result.getErrors().isEmpty() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> update(@PathVariable("id") Long id, @RequestBody ProductCreateDTO dto) {
         service.update(id, dto);
         return ResponseEntity.noContent().build();
     }
 
+    /** JSON merge patch: only the fields present are changed, {@code null} clears a field. */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@PathVariable("id") Long id, @RequestBody JsonNode patch) {
+        service.patch(id, patch);
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
         service.delete(id);
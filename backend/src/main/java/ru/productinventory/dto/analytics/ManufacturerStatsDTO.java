@@ -0,0 +1,15 @@
+package ru.productinventory.dto.analytics;
+
+/** Products of one manufacturer: count, and average and bounds of their price and rating. */
+public record ManufacturerStatsDTO(
+        Integer manufacturerId,
+        String manufacturerName,
+        long productCount,
+        double averagePrice,
+        long minPrice,
+        long maxPrice,
+        double averageRating,
+        long minRating,
+        long maxRating
+) {
+}
@@ -0,0 +1,11 @@
+package ru.productinventory.dto.analytics;
+
+import java.util.List;
+
+/** How products spread over owners: the owners with most products, and how many products have no owner. */
+public record OwnerDistributionDTO(
+        long totalProducts,
+        long withoutOwner,
+        List<OwnerStatsDTO> owners
+) {
+}
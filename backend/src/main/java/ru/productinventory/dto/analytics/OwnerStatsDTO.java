@@ -0,0 +1,8 @@
+package ru.productinventory.dto.analytics;
+
+public record OwnerStatsDTO(
+        Long ownerId,
+        String ownerName,
+        long productCount
+) {
+}
@@ -0,0 +1,9 @@
+package ru.productinventory.dto.analytics;
+
+import ru.productinventory.model.UnitOfMeasure;
+
+public record UnitStatsDTO(
+        UnitOfMeasure unitOfMeasure,
+        long productCount
+) {
+}
@@ -0,0 +1,33 @@
+package ru.productinventory.dto.batch;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of {@code POST /<entity>/batch}: creates, updates and deletes applied together in one transaction. Items are
+ * addressed in errors by their list and position. A list that is absent or {@code null} is empty.
+ */
+@Data
+public class BatchRequestDTO<T, ID> {
+    private List<T> creates = new ArrayList<>();
+    private List<BatchUpdateDTO<T, ID>> updates = new ArrayList<>();
+    private List<ID> deletes = new ArrayList<>();
+
+    public void setCreates(List<T> creates) {
+        this.creates = creates != null ? creates : new ArrayList<>();
+    }
+
+    public void setUpdates(List<BatchUpdateDTO<T, ID>> updates) {
+        this.updates = updates != null ? updates : new ArrayList<>();
+    }
+
+    public void setDeletes(List<ID> deletes) {
+        this.deletes = deletes != null ? deletes : new ArrayList<>();
+    }
+
+    public int size() {
+        return creates.size() + updates.size() + deletes.size();
+    }
+}
@@ -0,0 +1,38 @@
+package ru.productinventory.dto.batch;
+
+import lombok.Data;
+import ru.productinventory.dto.imports.ValidationError;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Result of a batch. On success the id lists follow the request lists item by item ({@code created.get(i)} is the id
+ * of {@code creates[i]}). If any item fails nothing is applied, the id lists are empty and {@code errors} names each
+ * failing item by {@code fieldPath} ({@code creates}, {@code updates}, {@code deletes}) and index.
+ */
+@Data
+public class BatchResponse<ID> {
+    private List<ID> created = new ArrayList<>();
+    private List<ID> updated = new ArrayList<>();
+    private List<ID> deleted = new ArrayList<>();
+    private List<ValidationError> errors = new ArrayList<>();
+
+    public static <ID> BatchResponse<ID> ok(List<ID> created, List<ID> updated, List<ID> deleted) {
+        BatchResponse<ID> r = new BatchResponse<>();
+        r.setCreated(created);
+        r.setUpdated(updated);
+        r.setDeleted(deleted);
+        return r;
+    }
+
+    /** {@code errors} are listed by list name, then index. */
+    public static <ID> BatchResponse<ID> failed(List<ValidationError> errors) {
+        BatchResponse<ID> r = new BatchResponse<>();
+        r.setErrors(errors.stream()
+                .sorted(Comparator.comparing(ValidationError::getFieldPath).thenComparing(ValidationError::getIndex))
+                .toList());
+        return r;
+    }
+}
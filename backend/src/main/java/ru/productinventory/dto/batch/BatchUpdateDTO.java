@@ -0,0 +1,17 @@
+package ru.productinventory.dto.batch;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One update of a batch: the same body as {@code PUT /<entity>/{id}}, with its id. */
+@Data
+@NoArgsConstructor
+public class BatchUpdateDTO<T, ID> {
+    private ID id;
+    private T item;
+
+    public BatchUpdateDTO(ID id, T item) {
+        this.id = id;
+        this.item = item;
+    }
+}
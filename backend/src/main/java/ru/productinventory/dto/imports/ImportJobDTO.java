@@ -0,0 +1,31 @@
+package ru.productinventory.dto.imports;
+
+import ru.productinventory.model.ImportOperation;
+
+import java.util.List;
+
+public record ImportJobDTO(
+        Long id,
+        String status,
+        String mode,
+        String phase,
+        long processed,
+        double rowsPerSecond,
+        Integer createdCount,
+        String errorMessage,
+        List<ValidationError> errors
+) {
+    public static ImportJobDTO from(ImportOperation o) {
+        return new ImportJobDTO(
+                o.getId(),
+                o.getStatus().name(),
+                o.getMode() == null ? null : o.getMode().name(),
+                null,
+                0,
+                0,
+                o.getCreatedCount(),
+                o.getErrorMessage(),
+                List.of()
+        );
+    }
+}
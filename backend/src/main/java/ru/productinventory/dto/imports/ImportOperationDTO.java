@@ -7,7 +7,10 @@ public record ImportOperationDTO(
         String status,
         Integer createdCount,
         String startedAt,
-        String finishedAt
+        String finishedAt,
+        String mode,
+        Integer lastCommittedIndex,
+        String errorMessage
 ) {
     public static ImportOperationDTO from(ImportOperation o) {
         return new ImportOperationDTO(
@@ -15,7 +18,10 @@ public record ImportOperationDTO(
                 o.getStatus().name(),
                 o.getCreatedCount(),
                 o.getStartedAt() == null ? null : o.getStartedAt().toString(),
-                o.getFinishedAt() == null ? null : o.getFinishedAt().toString()
+                o.getFinishedAt() == null ? null : o.getFinishedAt().toString(),
+                o.getMode() == null ? null : o.getMode().name(),
+                o.getLastCommittedIndex(),
+                o.getErrorMessage()
         );
     }
 }
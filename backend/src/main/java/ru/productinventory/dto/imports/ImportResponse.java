@@ -8,6 +8,7 @@ import java.util.List;
 @Data
 public class ImportResponse {
     private int createdCount;
+    private Long importId;
     private List<ValidationError> errors = new ArrayList<>();
 
     public static ImportResponse ok(int created) {
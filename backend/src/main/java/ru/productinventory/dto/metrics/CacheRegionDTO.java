@@ -0,0 +1,13 @@
+package ru.productinventory.dto.metrics;
+
+/** Counters of one second-level cache region since startup; {@code maxEntries} is null for unbounded regions. */
+public record CacheRegionDTO(
+        String region,
+        long entries,
+        Long maxEntries,
+        long hits,
+        long misses,
+        double hitRate,
+        long evictions
+) {
+}
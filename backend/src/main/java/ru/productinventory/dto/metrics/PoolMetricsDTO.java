@@ -0,0 +1,21 @@
+package ru.productinventory.dto.metrics;
+
+/**
+ * One connection pool: current connections by state and threads waiting for one (refreshed at most once a second),
+ * then since startup the requests for a connection with their mean and longest wait (timed-out ones included), the
+ * requests that timed out, and how long connections were held on average.
+ */
+public record PoolMetricsDTO(
+        String pool,
+        int active,
+        int idle,
+        int total,
+        int maxSize,
+        int pending,
+        long requests,
+        double acquireMeanMicros,
+        double acquireMaxMicros,
+        long timeouts,
+        double usageMeanMillis
+) {
+}
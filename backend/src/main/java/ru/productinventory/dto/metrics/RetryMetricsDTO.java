@@ -0,0 +1,14 @@
+package ru.productinventory.dto.metrics;
+
+/**
+ * Serialization-failure retries of one operation since startup: calls, attempts run again, calls that succeeded
+ * only after a retry, and calls that still failed with a serialization failure once the attempts ran out.
+ */
+public record RetryMetricsDTO(
+        String operation,
+        long calls,
+        long retries,
+        long recovered,
+        long exhausted
+) {
+}
@@ -15,4 +15,6 @@ public class OrganizationCreateDTO {
     private Integer rating;
     private AddressDTO officialAddress;
     private AddressDTO postalAddress;
+    /** On update, the version the client last read; the update fails with 409 if it has changed since. */
+    private Long version;
 }
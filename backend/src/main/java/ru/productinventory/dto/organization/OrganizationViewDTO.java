@@ -10,6 +10,7 @@ import ru.productinventory.dto.shared.AddressDTO;
 @Data
 public class OrganizationViewDTO {
     private Integer id;
+    private Long version;
     private String name;
     private AddressDTO officialAddress;
     private Double annualTurnover;
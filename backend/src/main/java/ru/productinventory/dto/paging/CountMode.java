@@ -0,0 +1,28 @@
+package ru.productinventory.dto.paging;
+
+import java.util.Locale;
+
+/** How a list endpoint computes {@code totalElements}. */
+public enum CountMode {
+    /** {@code count(*)} of the filtered query on every request. */
+    EXACT,
+    /** Exact count remembered per filter until a change event for an involved entity. */
+    CACHED,
+    /** PostgreSQL planner estimate once the table is large; exact below {@code paging.count.estimate-threshold}. */
+    ESTIMATED,
+    /**
+     * {@code count(*) over ()} in the page query: one round trip instead of two. Pages fetched with {@code after},
+     * and empty pages past the end, fall back to {@link #EXACT}.
+     */
+    WINDOW,
+    /** No total; clients page by {@code hasNext}. */
+    NONE;
+
+    public static CountMode from(String s) {
+        try {
+            return valueOf(s.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown count mode: " + s);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.Value;
 
 import java.util.List;
+import java.util.Locale;
 
 @Value
 @Builder
@@ -13,12 +14,17 @@ public class PageResponseDTO<T> {
     private List<T> items;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    /** Null when the count was skipped ({@link CountMode#NONE}). */
+    private Long totalElements;
+    private Integer totalPages;
+    /** Strategy that produced {@code totalElements}, lower case. */
+    private String countMode;
     private boolean hasNext;
     private boolean hasPrev;
     private String sort;
     private String dir;
+    /** Token for {@code after} that continues right after this page; null on the last page. */
+    private String nextCursor;
 
     public static <T> PageResponseDTO<T> of(List<T> items, int page, int size, long total, String sort, String dir) {
         int totalPages = (int) Math.max(1, (total + size - 1) / size);
@@ -28,10 +34,33 @@ public class PageResponseDTO<T> {
                 .size(size)
                 .totalElements(total)
                 .totalPages(totalPages)
+                .countMode("exact")
                 .hasNext(page + 1 < totalPages)
                 .hasPrev(page > 0)
                 .sort(sort)
                 .dir(dir)
                 .build();
     }
+
+    /**
+     * Page of a listing that also supports keyset paging. {@code keyset} means it was fetched with {@code after}, so
+     * {@code page} is only echoed back and a previous page always exists.
+     */
+    public static <T> PageResponseDTO<T> of(List<T> items, int page, int size, Long total, CountMode countMode,
+                                            String sort, String dir, String nextCursor, boolean keyset) {
+        Integer totalPages = total == null ? null : (int) Math.max(1, (total + size - 1) / size);
+        return PageResponseDTO.<T>builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .totalElements(total)
+                .totalPages(totalPages)
+                .countMode(countMode.name().toLowerCase(Locale.ROOT))
+                .hasNext(nextCursor != null)
+                .hasPrev(keyset || page > 0)
+                .sort(sort)
+                .dir(dir)
+                .nextCursor(nextCursor)
+                .build();
+    }
 }
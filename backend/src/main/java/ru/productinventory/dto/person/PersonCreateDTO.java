@@ -16,4 +16,6 @@ public class PersonCreateDTO {
     private LocationDTO location;
     private Double height;
     private Country nationality;
+    /** On update, the version the client last read; the update fails with 409 if it has changed since. */
+    private Long version;
 }
@@ -11,6 +11,7 @@ import ru.productinventory.model.Country;
 @Data
 public class PersonViewDTO {
     private Long id;
+    private Long version;
     private String name;
     private Color eyeColor;
     private Color hairColor;
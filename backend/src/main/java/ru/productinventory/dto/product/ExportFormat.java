@@ -0,0 +1,35 @@
+package ru.productinventory.dto.product;
+
+import java.util.Locale;
+
+/** Output of {@code GET /product/export}. */
+public enum ExportFormat {
+    /** One {@link ProductViewDTO} JSON object per line. */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /** Header line, then one flat row per product; manufacturer and owner as id and name columns. */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String s) {
+        try {
+            return valueOf(s.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format: " + s);
+        }
+    }
+}
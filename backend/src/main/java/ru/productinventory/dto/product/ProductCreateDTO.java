@@ -20,4 +20,6 @@ public class ProductCreateDTO {
     private Long rating;
     private String partNumber;
     private PersonRefDTO owner;
+    /** On update, the version the client last read; the update fails with 409 if it has changed since. */
+    private Long version;
 }
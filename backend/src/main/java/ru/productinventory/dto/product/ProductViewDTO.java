@@ -15,6 +15,7 @@ import java.util.Date;
 @Data
 public class ProductViewDTO {
     private Long id;
+    private Long version;
     private String name;
     private CoordinatesDTO coordinates;
     private Date creationDate;
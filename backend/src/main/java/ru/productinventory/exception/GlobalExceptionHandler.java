@@ -1,9 +1,12 @@
 package ru.productinventory.exception;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import org.hibernate.StaleStateException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -72,7 +75,8 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({
             TransactionSystemException.class,
             UnexpectedRollbackException.class,
-            DataIntegrityViolationException.class
+            DataIntegrityViolationException.class,
+            org.hibernate.exception.ConstraintViolationException.class
     })
     public ResponseEntity<ExceptionResponse> handleTxRollback(RuntimeException ex,
                                                               HttpServletRequest request) {
@@ -101,9 +105,17 @@ public class GlobalExceptionHandler {
                     message = "Невозможно удалить или изменить объект: он используется в других записях. Транзакция отменена.";
                 }
             }
+            else if ("23505".equals(sqlState) && sqlMsg != null
+                    && sqlMsg.contains("product_manufacturer_part_number_norm_key")) {
+                message = "Product with same manufacturer and partNumber already exists";
+                status = HttpStatus.BAD_REQUEST;
+            }
             else if ("23505".equals(sqlState)) {
                 message = "Объект с таким уникальным значением уже существует. Транзакция отменена.";
             }
+            else if ("40001".equals(sqlState) || "40P01".equals(sqlState)) {
+                message = "Транзакция конфликтует с параллельными изменениями. Повторите операцию.";
+            }
             else if ("23502".equals(sqlState)) {
                 message = "Не заполнено обязательное поле. Транзакция отменена.";
             }
@@ -113,6 +125,15 @@ public class GlobalExceptionHandler {
         return build(status, message, request, details);
     }
 
+    /** Optimistic lock: the row's version moved since the client, or this transaction, read it. */
+    @ExceptionHandler({ConcurrencyFailureException.class, StaleStateException.class, OptimisticLockException.class})
+    public ResponseEntity<ExceptionResponse> handleConcurrentChange(RuntimeException ex,
+                                                                    HttpServletRequest request) {
+        String message = "Объект был изменён другим пользователем. Обновите данные и повторите операцию.";
+        var details = List.of(new ValidationError(-1, "version", message));
+        return build(HttpStatus.CONFLICT, message, request, details);
+    }
+
     @ExceptionHandler(DataAccessException.class)
     public ResponseEntity<ExceptionResponse> handleDataAccess(DataAccessException ex,
                                                               HttpServletRequest request) {
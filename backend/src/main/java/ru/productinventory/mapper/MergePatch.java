@@ -0,0 +1,32 @@
+package ru.productinventory.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Applies a JSON merge patch (RFC 7396) to a create DTO: absent members keep their value, {@code null} clears one,
+ * and nested objects such as addresses are merged member by member.
+ */
+@Component
+public class MergePatch {
+    private final ObjectMapper patchMapper;
+
+    public MergePatch(ObjectMapper objectMapper) {
+        this.patchMapper = objectMapper.copy().setDefaultMergeable(true);
+    }
+
+    /** Updates {@code target} in place and returns it. */
+    public <T> T apply(T target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) throw new IllegalArgumentException("Patch must be a JSON object");
+        ObjectReader reader = patchMapper.readerForUpdating(target);
+        try {
+            return reader.readValue(patch);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid patch: " + e.getMessage());
+        }
+    }
+}
@@ -8,6 +8,7 @@ import ru.productinventory.dto.shared.LocationDTO;
 import ru.productinventory.model.Address;
 import ru.productinventory.model.Location;
 import ru.productinventory.model.Organization;
+import ru.productinventory.repository.projection.OrganizationListRow;
 
 @Component
 public class OrganizationMapper {
@@ -39,6 +40,29 @@ public class OrganizationMapper {
         return a;
     }
 
+    /** The current state of {@code o} as a create/update body, the base that a patch is applied to. */
+    public OrganizationCreateDTO toCreateDTO(Organization o) {
+        return OrganizationCreateDTO.builder()
+                .name(o.getName())
+                .annualTurnover(o.getAnnualTurnover())
+                .employeesCount(o.getEmployeesCount())
+                .fullName(o.getFullName())
+                .rating(o.getRating())
+                .officialAddress(toAddressDTO(o.getOfficialAddress()))
+                .postalAddress(toAddressDTO(o.getPostalAddress()))
+                .version(o.getVersion())
+                .build();
+    }
+
+    private AddressDTO toAddressDTO(Address a) {
+        if (a == null) return null;
+        Location t = a.getTown();
+        return AddressDTO.builder()
+                .zipCode(a.getZipCode())
+                .town(t != null ? LocationDTO.builder().x(t.getX()).y(t.getY()).name(t.getName()).build() : null)
+                .build();
+    }
+
     public OrganizationViewDTO toView(Organization o) {
         if (o == null) return null;
 
@@ -80,6 +104,7 @@ public class OrganizationMapper {
 
         return OrganizationViewDTO.builder()
                 .id(o.getId())
+                .version(o.getVersion())
                 .name(o.getName())
                 .officialAddress(officialAddressDto)
                 .postalAddress(postalAddressDto)
@@ -89,4 +114,32 @@ public class OrganizationMapper {
                 .rating(o.getRating())
                 .build();
     }
+
+    public OrganizationViewDTO toView(OrganizationListRow r) {
+        return OrganizationViewDTO.builder()
+                .id(r.id())
+                .version(r.version())
+                .name(r.name())
+                .officialAddress(toAddressView(r.officialZipCode(),
+                        r.officialTownX(), r.officialTownY(), r.officialTownName()))
+                .postalAddress(toAddressView(r.postalZipCode(),
+                        r.postalTownX(), r.postalTownY(), r.postalTownName()))
+                .annualTurnover(r.annualTurnover())
+                .employeesCount(r.employeesCount())
+                .fullName(r.fullName())
+                .rating(r.rating())
+                .build();
+    }
+
+    /** Null when every column is null, as Hibernate does for the component. */
+    private AddressDTO toAddressView(String zipCode, Long townX, Long townY, String townName) {
+        LocationDTO townDto = townX == null && townY == null && townName == null
+                ? null
+                : LocationDTO.builder().x(townX).y(townY).name(townName).build();
+        if (zipCode == null && townDto == null) return null;
+        return AddressDTO.builder()
+                .zipCode(zipCode)
+                .town(townDto)
+                .build();
+    }
 }
@@ -6,6 +6,7 @@ import ru.productinventory.dto.person.PersonViewDTO;
 import ru.productinventory.dto.shared.LocationDTO;
 import ru.productinventory.model.Location;
 import ru.productinventory.model.Person;
+import ru.productinventory.repository.projection.PersonListRow;
 
 @Component
 public class PersonMapper {
@@ -28,9 +29,24 @@ public class PersonMapper {
         return p;
     }
 
+    /** The current state of {@code p} as a create/update body, the base that a patch is applied to. */
+    public PersonCreateDTO toCreateDTO(Person p) {
+        Location l = p.getLocation();
+        return PersonCreateDTO.builder()
+                .name(p.getName())
+                .eyeColor(p.getEyeColor())
+                .hairColor(p.getHairColor())
+                .location(l != null ? LocationDTO.builder().x(l.getX()).y(l.getY()).name(l.getName()).build() : null)
+                .height(p.getHeight())
+                .nationality(p.getNationality())
+                .version(p.getVersion())
+                .build();
+    }
+
     public PersonViewDTO toView(Person p) {
         return PersonViewDTO.builder()
                 .id(p.getId())
+                .version(p.getVersion())
                 .name(p.getName())
                 .eyeColor(p.getEyeColor())
                 .hairColor(p.getHairColor())
@@ -42,5 +58,20 @@ public class PersonMapper {
                 .build();
     }
 
+    public PersonViewDTO toView(PersonListRow r) {
+        return PersonViewDTO.builder()
+                .id(r.id())
+                .version(r.version())
+                .name(r.name())
+                .eyeColor(r.eyeColor())
+                .hairColor(r.hairColor())
+                .locationName(r.locationName())
+                .locationX(r.locationX())
+                .locationY(r.locationY())
+                .height(r.height())
+                .nationality(r.nationality())
+                .build();
+    }
+
 }
 
@@ -4,10 +4,13 @@ import org.springframework.stereotype.Component;
 import ru.productinventory.dto.product.ProductCreateDTO;
 import ru.productinventory.dto.product.ProductViewDTO;
 import ru.productinventory.dto.shared.CoordinatesDTO;
+import ru.productinventory.dto.shared.OrganizationRefDTO;
+import ru.productinventory.dto.shared.PersonRefDTO;
 import ru.productinventory.model.Coordinates;
 import ru.productinventory.model.Organization;
 import ru.productinventory.model.Person;
 import ru.productinventory.model.Product;
+import ru.productinventory.repository.projection.ProductListRow;
 import ru.productinventory.dto.organization.OrganizationViewDTO;
 import ru.productinventory.dto.person.PersonViewDTO;
 
@@ -50,9 +53,36 @@ public class ProductMapper {
         return p;
     }
 
+    /** The current state of {@code p} as a create/update body, the base that a patch is applied to. */
+    public ProductCreateDTO toCreateDTO(Product p) {
+        OrganizationRefDTO manufacturer = new OrganizationRefDTO();
+        manufacturer.setId(p.getManufacturer().getId());
+        PersonRefDTO owner = null;
+        if (p.getOwner() != null) {
+            owner = new PersonRefDTO();
+            owner.setId(p.getOwner().getId());
+        }
+        return ProductCreateDTO.builder()
+                .name(p.getName())
+                .coordinates(CoordinatesDTO.builder()
+                        .x(p.getCoordinates().getX())
+                        .y(p.getCoordinates().getY())
+                        .build())
+                .unitOfMeasure(p.getUnitOfMeasure())
+                .manufacturer(manufacturer)
+                .price(p.getPrice())
+                .manufactureCost(p.getManufactureCost())
+                .rating(p.getRating())
+                .partNumber(p.getPartNumber())
+                .owner(owner)
+                .version(p.getVersion())
+                .build();
+    }
+
     public ProductViewDTO toView(Product p) {
         return ProductViewDTO.builder()
                 .id(p.getId())
+                .version(p.getVersion())
                 .name(p.getName())
                 .coordinates(CoordinatesDTO.builder()
                         .x(p.getCoordinates().getX())
@@ -73,4 +103,29 @@ public class ProductMapper {
                         : null)
                 .build();
     }
+
+    public ProductViewDTO toView(ProductListRow r) {
+        return ProductViewDTO.builder()
+                .id(r.id())
+                .version(r.version())
+                .name(r.name())
+                .coordinates(CoordinatesDTO.builder()
+                        .x(r.coordinatesX())
+                        .y(r.coordinatesY())
+                        .build())
+                .creationDate(r.creationDate())
+                .unitOfMeasure(r.unitOfMeasure())
+                .manufacturer(OrganizationViewDTO.builder()
+                        .id(r.manufacturerId())
+                        .name(r.manufacturerName())
+                        .build())
+                .price(r.price())
+                .manufactureCost(r.manufactureCost())
+                .rating(r.rating())
+                .partNumber(r.partNumber())
+                .owner(r.ownerId() != null
+                        ? PersonViewDTO.builder().id(r.ownerId()).name(r.ownerName()).build()
+                        : null)
+                .build();
+    }
 }
@@ -0,0 +1,17 @@
+package ru.productinventory.model;
+
+import java.util.Locale;
+
+public enum ImportMode {
+    ORM,
+    COPY,
+    CHUNKED;
+
+    public static ImportMode from(String s) {
+        try {
+            return valueOf(s.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown import mode: " + s);
+        }
+    }
+}
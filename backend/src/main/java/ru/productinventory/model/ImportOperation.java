@@ -18,4 +18,12 @@ public class ImportOperation {
     private Integer createdCount;
     private LocalDateTime startedAt;
     private LocalDateTime finishedAt;
+
+    // chunked imports: checkpoint and spooled source for resuming
+    private ImportMode mode;
+    private Integer lastCommittedIndex;
+    private String sourcePath;
+    private String errorMessage;
+    // incremented by each resume of a chunked import
+    private Integer attempt;
 }
@@ -1,6 +1,8 @@
 package ru.productinventory.model;
 
 public enum ImportStatus {
+    QUEUED,
+    RUNNING,
     SUCCESS,
     FAILED
 }
@@ -1,8 +1,11 @@
 package ru.productinventory.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.productinventory.util.NormalizationUtil;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -10,6 +13,7 @@ import lombok.NoArgsConstructor;
 
 public class Organization {
     private int id;
+    private long version;
     private String name;
     private Address officialAddress;
     private Double annualTurnover;
@@ -17,4 +21,16 @@ public class Organization {
     private String fullName;
     private int rating;
     private Address postalAddress;
+
+    /**
+     * Lookup key stored in {@code full_name_norm}, set by {@link #setFullName}. Hibernate reads and writes the field
+     * directly, so a loaded row keeps its stored key and is never rewritten just because it was loaded.
+     */
+    @Setter(AccessLevel.NONE)
+    private String fullNameNorm;
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+        this.fullNameNorm = NormalizationUtil.canonicalKey(fullName, true);
+    }
 }
\ No newline at end of file
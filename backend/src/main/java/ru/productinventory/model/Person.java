@@ -1,8 +1,11 @@
 package ru.productinventory.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.productinventory.util.NormalizationUtil;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -10,10 +13,23 @@ import lombok.NoArgsConstructor;
 
 public class Person {
     private long id;
+    private long version;
     private String name;
     private Color eyeColor;
     private Color hairColor;
     private Location location;
     private double height;
     private Country nationality;
+
+    /**
+     * Lookup key stored in {@code name_norm}, set by {@link #setName}. Hibernate reads and writes the field
+     * directly, so a loaded row keeps its stored key and is never rewritten just because it was loaded.
+     */
+    @Setter(AccessLevel.NONE)
+    private String nameNorm;
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameNorm = NormalizationUtil.canonicalKey(name, true);
+    }
 }
\ No newline at end of file
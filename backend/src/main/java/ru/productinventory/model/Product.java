@@ -1,8 +1,11 @@
 package ru.productinventory.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.productinventory.util.NormalizationUtil;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -10,6 +13,7 @@ import lombok.NoArgsConstructor;
 
 public class Product {
     private long id;
+    private long version;
     private String name;
     private Coordinates coordinates;
     private java.util.Date creationDate;
@@ -20,4 +24,16 @@ public class Product {
     private long rating;
     private String partNumber;
     private Person owner;
+
+    /**
+     * Lookup key stored in {@code part_number_norm}, set by {@link #setPartNumber}. Hibernate reads and writes the field
+     * directly, so a loaded row keeps its stored key and is never rewritten just because it was loaded.
+     */
+    @Setter(AccessLevel.NONE)
+    private String partNumberNorm;
+
+    public void setPartNumber(String partNumber) {
+        this.partNumber = partNumber;
+        this.partNumberNorm = NormalizationUtil.canonicalPartNumber(partNumber);
+    }
 }
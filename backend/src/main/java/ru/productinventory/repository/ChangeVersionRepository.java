@@ -0,0 +1,57 @@
+package ru.productinventory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Versions of the entity types, kept by the {@code change_log} triggers (V11). */
+@Repository
+@RequiredArgsConstructor
+public class ChangeVersionRepository {
+
+    private final SessionFactory sessionFactory;
+
+    private Session s() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    /** Current version of each of {@code entities}, as of the calling transaction's snapshot; 0 for an unknown one. */
+    @Transactional(readOnly = true)
+    public Map<String, Long> versions(Collection<String> entities) {
+        List<Object[]> rows = s().createNativeQuery("""
+                        select v.entity, v.version + (select count(*) from change_log l where l.entity = v.entity)
+                        from change_version v
+                        where v.entity in (:entities)
+                        """, Object[].class)
+                .setParameterList("entities", entities)
+                .list();
+        Map<String, Long> versions = new HashMap<>();
+        for (Object[] r : rows) versions.put((String) r[0], ((Number) r[1]).longValue());
+        return versions;
+    }
+
+    /**
+     * Moves the logged changes into {@code change_version}, leaving every version as it was. The statement names the
+     * tables it writes, so Hibernate leaves the second-level cache regions and cached queries alone.
+     */
+    @Transactional
+    public void fold() {
+        ((NativeQuery<?>) s().createNativeMutationQuery("""
+                        with folded as (delete from change_log returning entity)
+                        update change_version v set version = v.version + f.n
+                        from (select entity, count(*) as n from folded group by entity) f
+                        where v.entity = f.entity
+                        """))
+                .addSynchronizedQuerySpace("change_log")
+                .addSynchronizedQuerySpace("change_version")
+                .executeUpdate();
+    }
+}
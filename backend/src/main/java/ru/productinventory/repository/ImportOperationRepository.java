@@ -3,10 +3,13 @@ package ru.productinventory.repository;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import ru.productinventory.model.ImportOperation;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +28,59 @@ public class ImportOperationRepository {
         s().persist(op);
     }
 
+    /**
+     * Lease statements, synchronized on {@code import_lease}: an unnamed native statement would clear every
+     * second-level cache region, and these run on a timer.
+     */
+    private NativeQuery<?> leaseMutation(String sql) {
+        return ((NativeQuery<?>) s().createNativeMutationQuery(sql)).addSynchronizedQuerySpace("import_lease");
+    }
+
+    /** Takes or renews the lease of operation {@code id}. */
+    @Transactional
+    public void renewLease(Long id) {
+        leaseMutation("""
+                        insert into import_lease (operation_id, heartbeat_at) values (:id, localtimestamp)
+                        on conflict (operation_id) do update set heartbeat_at = excluded.heartbeat_at
+                        """)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Transactional
+    public void renewLeases(Collection<Long> ids) {
+        leaseMutation("update import_lease set heartbeat_at = localtimestamp where operation_id in (:ids)")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Fails the QUEUED and RUNNING operations without a lease renewed in the last {@code leaseMs}, and removes the
+     * leases of finished operations. Returns the failed operations' id, mode and source path.
+     */
+    @Transactional
+    public List<Object[]> failExpired(long leaseMs, String errorMessage, LocalDateTime finishedAt) {
+        List<Object[]> failed = s().createNativeQuery("""
+                        update import_operation o
+                        set status = 'FAILED', error_message = :msg, finished_at = :finishedAt
+                        where o.status in ('QUEUED', 'RUNNING')
+                          and not exists (select 1 from import_lease l
+                                          where l.operation_id = o.id
+                                            and l.heartbeat_at > localtimestamp - make_interval(secs => :leaseMs / 1000.0))
+                        returning o.id, o.mode, o.source_path
+                        """, Object[].class)
+                .setParameter("msg", errorMessage)
+                .setParameter("finishedAt", finishedAt)
+                .setParameter("leaseMs", leaseMs)
+                .list();
+        leaseMutation("""
+                        delete from import_lease l using import_operation o
+                        where o.id = l.operation_id and o.status in ('SUCCESS', 'FAILED')
+                        """)
+                .executeUpdate();
+        return failed;
+    }
+
     @Transactional(readOnly = true)
     public ImportOperation findById(Long id) {
         return s().get(ImportOperation.class, id);
@@ -4,8 +4,13 @@ import lombok.RequiredArgsConstructor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Repository;
+import ru.productinventory.config.HibernateConfig;
 import ru.productinventory.model.Organization;
+import ru.productinventory.repository.projection.OrganizationListRow;
+import ru.productinventory.repository.util.LikePatterns;
+import ru.productinventory.repository.util.RowEstimates;
 import ru.productinventory.repository.util.SortSupport;
+import ru.productinventory.util.NormalizationUtil;
 
 import java.util.*;
 
@@ -35,15 +40,23 @@ public class OrganizationRepository {
         s().remove(e);
     }
 
+    /** One row per id, in order; null where no organization has the id. */
+    public List<Organization> findAllById(List<Integer> ids) {
+        return s().byMultipleIds(Organization.class).multiLoad(ids);
+    }
+
     public Organization findByBusinessKey(String fullNameRaw) {
         if (fullNameRaw == null || fullNameRaw.isBlank()) return null;
-        String norm = normalizeFullName(fullNameRaw);
+        String norm = NormalizationUtil.canonicalKey(fullNameRaw, true);
         return s().createQuery("""
                         select o from Organization o
-                        where lower(trim(o.fullName)) = :fn
+                        where o.fullNameNorm = :fn
+                        order by o.id
                         """, Organization.class)
                 .setParameter("fn", norm)
                 .setMaxResults(1)
+                .setCacheable(true)
+                .setCacheRegion(HibernateConfig.BUSINESS_KEY_REGION)
                 .uniqueResult();
     }
 
@@ -51,65 +64,98 @@ public class OrganizationRepository {
     public Organization findByFullNameNormalized(String normalizedLower) {
         return s().createQuery("""
                         select o from Organization o
-                        where function('regexp_replace', lower(o.fullName), '\\s+', ' ', 'g') = :norm
+                        where o.fullNameNorm = :norm
+                        order by o.id
                         """, Organization.class)
                 .setParameter("norm", normalizedLower)
                 .setMaxResults(1)
+                .setCacheable(true)
+                .setCacheRegion(HibernateConfig.BUSINESS_KEY_REGION)
                 .uniqueResult();
     }
 
-    private static String normalizeFullName(String s) {
-        return s == null ? null : s.trim().toLowerCase(Locale.ROOT);
+    /**
+     * Bulk variant of {@link #findByFullNameNormalized}: one query for a whole set of keys.
+     * The returned map is mutable and holds the lowest-id organization per key.
+     */
+    public Map<String, Organization> findAllByFullNameNormalized(Collection<String> normalizedLower) {
+        Map<String, Organization> out = new HashMap<>();
+        if (normalizedLower.isEmpty()) return out;
+        s().createQuery("""
+                        select o, o.fullNameNorm
+                        from Organization o
+                        where o.fullNameNorm in (:norms)
+                        order by o.id
+                        """, Object[].class)
+                .setParameterList("norms", normalizedLower)
+                .list()
+                .forEach(r -> out.putIfAbsent((String) r[1], (Organization) r[0]));
+        return out;
     }
 
     private static final Map<String, SortSupport.Rule> SORT = new LinkedHashMap<>();
 
     static {
-        SORT.put("id", SortSupport.Rule.column("o.id"));
-        SORT.put("name", SortSupport.Rule.column("o.name"));
-        SORT.put("fullName", SortSupport.Rule.column("o.fullName"));
-        SORT.put("employeesCount", SortSupport.Rule.column("o.employeesCount"));
-        SORT.put("annualTurnover", SortSupport.Rule.column("o.annualTurnover"));
-        SORT.put("rating", SortSupport.Rule.column("o.rating"));
-        SORT.put("createdAt", SortSupport.Rule.column("o.createdAt"));
-        SORT.put("officialCity", SortSupport.Rule.column("o.officialAddress.town.name"));
-        SORT.put("postalCity", SortSupport.Rule.column("o.postalAddress.town.name"));
+        SORT.put("id", SortSupport.Rule.column("o.id", Integer.class));
+        SORT.put("name", SortSupport.Rule.column("o.name", String.class));
+        SORT.put("fullName", SortSupport.Rule.nullableColumn("o.fullName", String.class));
+        SORT.put("employeesCount", SortSupport.Rule.column("o.employeesCount", Integer.class));
+        SORT.put("annualTurnover", SortSupport.Rule.column("o.annualTurnover", Double.class));
+        SORT.put("rating", SortSupport.Rule.column("o.rating", Integer.class));
+        SORT.put("officialCity", SortSupport.Rule.column("o.officialAddress.town.name", String.class));
+        SORT.put("postalCity", SortSupport.Rule.column("o.postalAddress.town.name", String.class));
     }
 
-    public List<Organization> findFiltered(
+    /**
+     * Pages by {@code offset}, or by keyset when {@code after} (a previous {@code nextCursor}) is given.
+     * {@code withTotal} adds the filtered total to offset pages (see {@link SortSupport#WINDOW_COUNT}). Rows are
+     * projected, not loaded as entities.
+     */
+    public SortSupport.Slice<OrganizationListRow> findFiltered(
             String name, String fullName, String officialTownName, String postalTownName,
-            int offset, int limit, String sort, String dir
+            String after, int offset, int limit, String sort, String dir, boolean withTotal
     ) {
+        var built = SortSupport.build(SORT, sort, dir, "id");
+        var cursor = after != null && !after.isBlank() ? built.decode(after) : null;
+        boolean windowTotal = withTotal && cursor == null;
+
         StringBuilder hql = new StringBuilder("""
-                    select o
+                    select new ru.productinventory.repository.projection.OrganizationListRow(
+                               o.id, o.version, o.name, o.annualTurnover, o.employeesCount, o.fullName, o.rating,
+                               o.officialAddress.zipCode, oat.x, oat.y, oat.name,
+                               o.postalAddress.zipCode, pat.x, pat.y, pat.name),
+                           %s, o.id%s
                     from Organization o
                       left join o.officialAddress oa
                       left join oa.town oat
                       left join o.postalAddress pa
                       left join pa.town pat
                     where 1=1
-                """);
+                """.formatted(built.keyExpr(), windowTotal ? SortSupport.WINDOW_COUNT : ""));
         if (name != null && !name.isBlank()) hql.append(" and lower(o.name)      like lower(:name) ");
         if (fullName != null && !fullName.isBlank()) hql.append(" and lower(o.fullName)  like lower(:fullName) ");
         if (officialTownName != null && !officialTownName.isBlank())
             hql.append(" and lower(oat.name)     like lower(:officialTownName) ");
         if (postalTownName != null && !postalTownName.isBlank())
             hql.append(" and lower(pat.name)     like lower(:postalTownName) ");
+        if (cursor != null) hql.append(" and ").append(built.after(cursor));
 
-        var built = SortSupport.build(SORT, sort, dir, "id");
         hql.append(" order by ").append(built.orderBy());
 
-        var q = s().createQuery(hql.toString(), Organization.class);
-        if (name != null && !name.isBlank()) q.setParameter("name", "%" + name.trim() + "%");
-        if (fullName != null && !fullName.isBlank()) q.setParameter("fullName", "%" + fullName.trim() + "%");
+        var q = s().createQuery(hql.toString(), Object[].class);
+        if (name != null && !name.isBlank()) q.setParameter("name", LikePatterns.contains(name));
+        if (fullName != null && !fullName.isBlank()) q.setParameter("fullName", LikePatterns.contains(fullName));
         if (officialTownName != null && !officialTownName.isBlank())
-            q.setParameter("officialTownName", "%" + officialTownName.trim() + "%");
+            q.setParameter("officialTownName", LikePatterns.contains(officialTownName));
         if (postalTownName != null && !postalTownName.isBlank())
-            q.setParameter("postalTownName", "%" + postalTownName.trim() + "%");
-
-        q.setFirstResult(Math.max(offset, 0));
-        q.setMaxResults(Math.max(limit, 1));
-        return q.list();
+            q.setParameter("postalTownName", LikePatterns.contains(postalTownName));
+        if (cursor != null) built.bind(q, cursor);
+
+        if (cursor == null) q.setFirstResult(Math.max(offset, 0));
+        q.setMaxResults(Math.max(limit, 1) + 1);
+        return windowTotal
+                ? built.sliceWithTotal(q.list(), Math.max(limit, 1), offset <= 0)
+                : built.slice(q.list(), Math.max(limit, 1));
     }
 
     public long countFiltered(
@@ -132,13 +178,46 @@ public class OrganizationRepository {
             hql.append(" and lower(pat.name)     like lower(:postalTownName) ");
 
         var q = s().createQuery(hql.toString(), Long.class);
-        if (name != null && !name.isBlank()) q.setParameter("name", "%" + name.trim() + "%");
-        if (fullName != null && !fullName.isBlank()) q.setParameter("fullName", "%" + fullName.trim() + "%");
+        if (name != null && !name.isBlank()) q.setParameter("name", LikePatterns.contains(name));
+        if (fullName != null && !fullName.isBlank()) q.setParameter("fullName", LikePatterns.contains(fullName));
         if (officialTownName != null && !officialTownName.isBlank())
-            q.setParameter("officialTownName", "%" + officialTownName.trim() + "%");
+            q.setParameter("officialTownName", LikePatterns.contains(officialTownName));
         if (postalTownName != null && !postalTownName.isBlank())
-            q.setParameter("postalTownName", "%" + postalTownName.trim() + "%");
+            q.setParameter("postalTownName", LikePatterns.contains(postalTownName));
 
         return q.getSingleResult();
     }
+
+    /** Planner estimate of {@link #countFiltered}; same filters, native SQL so it can be EXPLAINed. */
+    public long estimateFiltered(
+            String name, String fullName, String officialTownName, String postalTownName
+    ) {
+        StringBuilder sql = new StringBuilder("""
+                    select 1
+                    from organization o
+                    where 1=1
+                """);
+        Map<String, Object> params = new HashMap<>();
+        if (name != null && !name.isBlank()) {
+            sql.append(" and lower(o.name)      like lower(:name) ");
+            params.put("name", LikePatterns.contains(name));
+        }
+        if (fullName != null && !fullName.isBlank()) {
+            sql.append(" and lower(o.full_name) like lower(:fullName) ");
+            params.put("fullName", LikePatterns.contains(fullName));
+        }
+        if (officialTownName != null && !officialTownName.isBlank()) {
+            sql.append(" and lower(o.official_town_name) like lower(:officialTownName) ");
+            params.put("officialTownName", LikePatterns.contains(officialTownName));
+        }
+        if (postalTownName != null && !postalTownName.isBlank()) {
+            sql.append(" and lower(o.postal_town_name)   like lower(:postalTownName) ");
+            params.put("postalTownName", LikePatterns.contains(postalTownName));
+        }
+        return RowEstimates.query(s(), sql.toString(), params);
+    }
+
+    public long estimateTotal() {
+        return RowEstimates.table(s(), "organization");
+    }
 }
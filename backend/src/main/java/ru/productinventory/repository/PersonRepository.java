@@ -4,9 +4,13 @@ import lombok.RequiredArgsConstructor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Repository;
+import ru.productinventory.config.HibernateConfig;
 import ru.productinventory.model.Color;
 import ru.productinventory.model.Country;
 import ru.productinventory.model.Person;
+import ru.productinventory.repository.projection.PersonListRow;
+import ru.productinventory.repository.util.LikePatterns;
+import ru.productinventory.repository.util.RowEstimates;
 import ru.productinventory.repository.util.SortSupport;
 
 import java.util.*;
@@ -22,35 +26,64 @@ public class PersonRepository {
     public Long merge(Person e) { return (s().merge(e)).getId(); }
     public void delete(Person e) { s().remove(e); }
 
-    public Person findByBusinessKey(String nameLowerNorm) {
-        if (nameLowerNorm == null) return null;
+    /** One row per id, in order; null where no person has the id. */
+    public List<Person> findAllById(List<Long> ids) { return s().byMultipleIds(Person.class).multiLoad(ids); }
+
+    /** {@code nameNorm} is {@code NormalizationUtil.canonicalKey(name, true)}. */
+    public Person findByBusinessKey(String nameNorm) {
+        if (nameNorm == null) return null;
 
         return s().createQuery("""
             select p from Person p
-            where lower(p.name) = :nm
+            where p.nameNorm = :nm
+            order by p.id
             """, Person.class)
-                .setParameter("nm", nameLowerNorm)
+                .setParameter("nm", nameNorm)
                 .setMaxResults(1)
+                .setCacheable(true)
+                .setCacheRegion(HibernateConfig.BUSINESS_KEY_REGION)
                 .uniqueResult();
     }
 
+    /**
+     * Bulk variant of {@link #findByBusinessKey}: one query for a whole set of keys.
+     * The returned map is mutable and holds the lowest-id person per key.
+     */
+    public Map<String, Person> findAllByBusinessKeys(Collection<String> nameNorms) {
+        Map<String, Person> out = new HashMap<>();
+        if (nameNorms.isEmpty()) return out;
+        s().createQuery("""
+            select p, p.nameNorm from Person p
+            where p.nameNorm in (:nms)
+            order by p.id
+            """, Object[].class)
+                .setParameterList("nms", nameNorms)
+                .list()
+                .forEach(r -> out.putIfAbsent((String) r[1], (Person) r[0]));
+        return out;
+    }
 
     private static final Map<String, SortSupport.Rule> SORT = new LinkedHashMap<>();
     static {
-        SORT.put("id",          SortSupport.Rule.column("p.id"));
-        SORT.put("name",        SortSupport.Rule.column("p.name"));
-        SORT.put("height",      SortSupport.Rule.column("p.height"));
-        SORT.put("nationality", SortSupport.Rule.column("p.nationality"));
-        SORT.put("eyeColor",    SortSupport.Rule.column("p.eyeColor"));
-        SORT.put("hairColor",   SortSupport.Rule.column("p.hairColor"));
-        SORT.put("locationName", SortSupport.Rule.column("p.location.name"));
-        SORT.put("locationX",    SortSupport.Rule.column("p.location.x"));
-        SORT.put("locationY",    SortSupport.Rule.column("p.location.y"));
+        SORT.put("id",          SortSupport.Rule.column("p.id", Long.class));
+        SORT.put("name",        SortSupport.Rule.column("p.name", String.class));
+        SORT.put("height",      SortSupport.Rule.column("p.height", Double.class));
+        SORT.put("nationality", SortSupport.Rule.column("p.nationality", Country.class));
+        SORT.put("eyeColor",    SortSupport.Rule.nullableColumn("p.eyeColor", Color.class));
+        SORT.put("hairColor",   SortSupport.Rule.nullableColumn("p.hairColor", Color.class));
+        SORT.put("locationName", SortSupport.Rule.nullableColumn("p.location.name", String.class));
+        SORT.put("locationX",    SortSupport.Rule.nullableColumn("p.location.x", Long.class));
+        SORT.put("locationY",    SortSupport.Rule.nullableColumn("p.location.y", Long.class));
     }
 
-    public List<Person> findFiltered(
+    /**
+     * Pages by {@code offset}, or by keyset when {@code after} (a previous {@code nextCursor}) is given.
+     * {@code withTotal} adds the filtered total to offset pages (see {@link SortSupport#WINDOW_COUNT}). Rows are
+     * projected, not loaded as entities.
+     */
+    public SortSupport.Slice<PersonListRow> findFiltered(
             String name, String eyeColorLike, String hairColorLike, String nationalityLike, String locationName,
-            int offset, int limit, String sort, String dir
+            String after, int offset, int limit, String sort, String dir, boolean withTotal
     ) {
         List<Color> eyes = null;
         List<Color> hairs = null;
@@ -59,43 +92,55 @@ public class PersonRepository {
         if (eyeColorLike != null && !eyeColorLike.isBlank()) {
             String n = eyeColorLike.trim().toLowerCase();
             eyes = Arrays.stream(Color.values()).filter(c -> c.name().toLowerCase().contains(n)).toList();
-            if (eyes.isEmpty()) return List.of();
+            if (eyes.isEmpty()) return SortSupport.Slice.empty();
         }
         if (hairColorLike != null && !hairColorLike.isBlank()) {
             String n = hairColorLike.trim().toLowerCase();
             hairs = Arrays.stream(Color.values()).filter(c -> c.name().toLowerCase().contains(n)).toList();
-            if (hairs.isEmpty()) return List.of();
+            if (hairs.isEmpty()) return SortSupport.Slice.empty();
         }
         if (nationalityLike != null && !nationalityLike.isBlank()) {
             String n = nationalityLike.trim().toLowerCase();
             nats = Arrays.stream(Country.values()).filter(c -> c.name().toLowerCase().contains(n)).toList();
-            if (nats.isEmpty()) return List.of();
+            if (nats.isEmpty()) return SortSupport.Slice.empty();
         }
 
+        var built = SortSupport.build(SORT, sort, dir, "id");
+        var cursor = after != null && !after.isBlank() ? built.decode(after) : null;
+        boolean windowTotal = withTotal && cursor == null;
+
         StringBuilder hql = new StringBuilder("""
-            select p from Person p where 1=1
-        """);
+            select new ru.productinventory.repository.projection.PersonListRow(
+                       p.id, p.version, p.name, p.eyeColor, p.hairColor, p.location.x, p.location.y, p.location.name,
+                       p.height, p.nationality),
+                   %s, p.id%s
+            from Person p
+            where 1=1
+        """.formatted(built.keyExpr(), windowTotal ? SortSupport.WINDOW_COUNT : ""));
         if (name != null && !name.isBlank()) hql.append(" and lower(p.name) like lower(:name) ");
         if (eyes != null)                    hql.append(" and p.eyeColor in (:eyes) ");
         if (hairs != null)                   hql.append(" and p.hairColor in (:hairs) ");
         if (nats != null)                    hql.append(" and p.nationality in (:nats) ");
         if (locationName != null && !locationName.isBlank())
             hql.append(" and lower(p.location.name) like lower(:locName) ");
+        if (cursor != null) hql.append(" and ").append(built.after(cursor));
 
-        var built = SortSupport.build(SORT, sort, dir, "id");
         hql.append(" order by ").append(built.orderBy());
 
-        var q = s().createQuery(hql.toString(), Person.class);
-        if (name != null && !name.isBlank()) q.setParameter("name", "%" + name.trim() + "%");
+        var q = s().createQuery(hql.toString(), Object[].class);
+        if (name != null && !name.isBlank()) q.setParameter("name", LikePatterns.contains(name));
         if (eyes != null) q.setParameterList("eyes", eyes);
         if (hairs != null) q.setParameterList("hairs", hairs);
         if (nats != null) q.setParameterList("nats", nats);
         if (locationName != null && !locationName.isBlank())
-            q.setParameter("locName", "%" + locationName.trim() + "%");
-
-        q.setFirstResult(Math.max(offset,0));
-        q.setMaxResults(Math.max(limit,1));
-        return q.list();
+            q.setParameter("locName", LikePatterns.contains(locationName));
+        if (cursor != null) built.bind(q, cursor);
+
+        if (cursor == null) q.setFirstResult(Math.max(offset,0));
+        q.setMaxResults(Math.max(limit,1) + 1);
+        return windowTotal
+                ? built.sliceWithTotal(q.list(), Math.max(limit,1), offset <= 0)
+                : built.slice(q.list(), Math.max(limit,1));
     }
 
     public long countFiltered(
@@ -132,13 +177,68 @@ public class PersonRepository {
             hql.append(" and lower(p.location.name) like lower(:locName) ");
 
         var q = s().createQuery(hql.toString(), Long.class);
-        if (name != null && !name.isBlank()) q.setParameter("name", "%" + name.trim() + "%");
+        if (name != null && !name.isBlank()) q.setParameter("name", LikePatterns.contains(name));
         if (eyes != null) q.setParameterList("eyes", eyes);
         if (hairs != null) q.setParameterList("hairs", hairs);
         if (nats != null) q.setParameterList("nats", nats);
         if (locationName != null && !locationName.isBlank())
-            q.setParameter("locName", "%" + locationName.trim() + "%");
+            q.setParameter("locName", LikePatterns.contains(locationName));
 
         return q.getSingleResult();
     }
+
+    /** Planner estimate of {@link #countFiltered}; same filters, native SQL so it can be EXPLAINed. */
+    public long estimateFiltered(
+            String name, String eyeColorLike, String hairColorLike, String nationalityLike, String locationName
+    ) {
+        List<String> eyes = null;
+        List<String> hairs = null;
+        List<String> nats = null;
+
+        if (eyeColorLike != null && !eyeColorLike.isBlank()) {
+            String n = eyeColorLike.trim().toLowerCase();
+            eyes = Arrays.stream(Color.values()).map(Enum::name).filter(c -> c.toLowerCase().contains(n)).toList();
+            if (eyes.isEmpty()) return 0L;
+        }
+        if (hairColorLike != null && !hairColorLike.isBlank()) {
+            String n = hairColorLike.trim().toLowerCase();
+            hairs = Arrays.stream(Color.values()).map(Enum::name).filter(c -> c.toLowerCase().contains(n)).toList();
+            if (hairs.isEmpty()) return 0L;
+        }
+        if (nationalityLike != null && !nationalityLike.isBlank()) {
+            String n = nationalityLike.trim().toLowerCase();
+            nats = Arrays.stream(Country.values()).map(Enum::name).filter(c -> c.toLowerCase().contains(n)).toList();
+            if (nats.isEmpty()) return 0L;
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            select 1 from person p where 1=1
+        """);
+        Map<String, Object> params = new HashMap<>();
+        if (name != null && !name.isBlank()) {
+            sql.append(" and lower(p.name) like lower(:name) ");
+            params.put("name", LikePatterns.contains(name));
+        }
+        if (eyes != null) {
+            sql.append(" and p.eye_color in (:eyes) ");
+            params.put("eyes", eyes);
+        }
+        if (hairs != null) {
+            sql.append(" and p.hair_color in (:hairs) ");
+            params.put("hairs", hairs);
+        }
+        if (nats != null) {
+            sql.append(" and p.nationality in (:nats) ");
+            params.put("nats", nats);
+        }
+        if (locationName != null && !locationName.isBlank()) {
+            sql.append(" and lower(p.loc_name) like lower(:locName) ");
+            params.put("locName", LikePatterns.contains(locationName));
+        }
+        return RowEstimates.query(s(), sql.toString(), params);
+    }
+
+    public long estimateTotal() {
+        return RowEstimates.table(s(), "person");
+    }
 }
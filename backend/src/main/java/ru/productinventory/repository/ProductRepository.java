@@ -3,13 +3,23 @@ package ru.productinventory.repository;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
 import ru.productinventory.model.Organization;
 import ru.productinventory.model.Product;
 import ru.productinventory.model.UnitOfMeasure;
+import ru.productinventory.repository.projection.ProductListRow;
+import ru.productinventory.repository.util.IdBlocks;
+import ru.productinventory.repository.util.LikePatterns;
+import ru.productinventory.repository.util.RowEstimates;
 import ru.productinventory.repository.util.SortSupport;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
@@ -22,36 +32,143 @@ public class ProductRepository {
     public Long merge(Product e) { return (s().merge(e)).getId(); }
     public void delete(Product e) { s().remove(e); }
 
+    /** One row per id, in order; null where no product has the id. */
+    public List<Product> findAllById(List<Long> ids) { return s().byMultipleIds(Product.class).multiLoad(ids); }
+
+    /**
+     * Inserts {@code e} unless a product with its manufacturer and normalized part number exists, in one statement
+     * arbitrated by the unique index of db/migration/V8. Returns the new id, or null on a conflict; the transaction
+     * stays usable either way. {@code e} is not attached to the session; its id is set on success.
+     * <p>
+     * The id comes from the mapping's pooled generator, like {@link #save}, so it is taken from the current block
+     * instead of spending a whole block through the column default (see {@link IdBlocks}). The statement names the
+     * table it writes, so Hibernate invalidates only product's cached queries instead of every cache region.
+     */
+    public Long insertIfAbsent(Product e) {
+        long id = nextId(e);
+        int inserted = ((NativeQuery<?>) s().createNativeMutationQuery("""
+                        insert into product (id, name, coordinates_x, coordinates_y, unit_of_measure, manufacturer_id,
+                                             price, manufacture_cost, rating, part_number, part_number_norm, owner_id)
+                        values (:id, :name, :x, :y, :unit, :manufacturer,
+                                :price, :cost, :rating, :partNumber, :partNumberNorm, :owner)
+                        on conflict (manufacturer_id, part_number_norm) do nothing
+                        """))
+                .addSynchronizedQuerySpace("product")
+                .setParameter("id", id)
+                .setParameter("name", e.getName())
+                .setParameter("x", e.getCoordinates().getX())
+                .setParameter("y", e.getCoordinates().getY())
+                .setParameter("unit", e.getUnitOfMeasure().name())
+                .setParameter("manufacturer", e.getManufacturer().getId())
+                .setParameter("price", e.getPrice())
+                .setParameter("cost", e.getManufactureCost())
+                .setParameter("rating", e.getRating())
+                .setParameter("partNumber", e.getPartNumber())
+                .setParameter("partNumberNorm", e.getPartNumberNorm())
+                .setParameter("owner", e.getOwner() != null ? e.getOwner().getId() : null, Long.class)
+                .executeUpdate();
+        if (inserted == 0) return null;
+        e.setId(id);
+        return id;
+    }
+
+    private long nextId(Product e) {
+        var generator = (BeforeExecutionGenerator) sf.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .getEntityDescriptor(Product.class).getGenerator();
+        return (Long) generator.generate(s().unwrap(SharedSessionContractImplementor.class), e, null, EventType.INSERT);
+    }
+
+    /** {@code partNumberNorm} is {@link ru.productinventory.util.NormalizationUtil#canonicalPartNumber} output. */
     public Product findByBusinessKey(Organization m, String partNumberNorm) {
         if (m == null || partNumberNorm == null) return null;
         return s().createQuery("""
                 select p from Product p
                 where p.manufacturer = :m
-                  and function('regexp_replace', lower(p.partNumber), '[\\s\\u2013\\u2014]+', '-', 'g') = :pn
+                  and p.partNumberNorm = :pn
+                order by p.id
                 """, Product.class)
                 .setParameter("m", m)
-                .setParameter("pn", partNumberNorm.toLowerCase())
+                .setParameter("pn", partNumberNorm)
                 .setMaxResults(1)
                 .uniqueResult();
     }
 
+    public record BusinessKey(int manufacturerId, String partNumberNorm) {
+    }
+
+    /**
+     * Bulk variant of {@link #findByBusinessKey}: fetches the ids of existing products whose manufacturer is one of
+     * {@code manufacturerIds} and whose normalized part number is one of {@code partNumberNorms}.
+     */
+    public Map<BusinessKey, Long> findExistingBusinessKeys(Collection<Integer> manufacturerIds,
+                                                          Collection<String> partNumberNorms) {
+        Map<BusinessKey, Long> out = new HashMap<>();
+        if (manufacturerIds.isEmpty() || partNumberNorms.isEmpty()) return out;
+        s().createQuery("""
+                select p.manufacturer.id, p.partNumberNorm, p.id
+                from Product p
+                where p.manufacturer.id in (:ms)
+                  and p.partNumberNorm in (:pns)
+                order by p.id
+                """, Object[].class)
+                .setParameterList("ms", manufacturerIds)
+                .setParameterList("pns", partNumberNorms)
+                .list()
+                .forEach(r -> out.putIfAbsent(new BusinessKey((Integer) r[0], (String) r[1]), (Long) r[2]));
+        return out;
+    }
+
+    /**
+     * {@link #findExistingBusinessKeys} for imports: also tells, per product, whether the calling transaction inserted
+     * it (its {@code xmin} is the transaction's id), so a repeat within a one-transaction import is told from a row
+     * that existed before without keeping the ids the import inserted.
+     */
+    public Map<BusinessKey, ExistingProduct> findExistingProducts(Collection<Integer> manufacturerIds,
+                                                                  Collection<String> partNumberNorms) {
+        Map<BusinessKey, ExistingProduct> out = new HashMap<>();
+        if (manufacturerIds.isEmpty() || partNumberNorms.isEmpty()) return out;
+        s().createNativeQuery("""
+                        select manufacturer_id, part_number_norm, id,
+                               coalesce(xmin = pg_current_xact_id_if_assigned()::xid, false)
+                        from product
+                        where manufacturer_id in (:ms)
+                          and part_number_norm in (:pns)
+                        order by id
+                        """, Object[].class)
+                .addSynchronizedEntityClass(Product.class)
+                .setParameterList("ms", manufacturerIds)
+                .setParameterList("pns", partNumberNorms)
+                .list()
+                .forEach(r -> out.putIfAbsent(new BusinessKey(((Number) r[0]).intValue(), (String) r[1]),
+                        new ExistingProduct(((Number) r[2]).longValue(), (Boolean) r[3])));
+        return out;
+    }
+
+    public record ExistingProduct(long id, boolean insertedByThisTransaction) {
+    }
+
     private static final Map<String, SortSupport.Rule> SORT = new LinkedHashMap<>();
     static {
-        SORT.put("id",            SortSupport.Rule.column("p.id"));
-        SORT.put("name",          SortSupport.Rule.column("p.name"));
-        SORT.put("price",         SortSupport.Rule.column("p.price"));
-        SORT.put("rating",        SortSupport.Rule.column("p.rating"));
-        SORT.put("partNumber",    SortSupport.Rule.column("p.partNumber"));
-        SORT.put("unitOfMeasure", SortSupport.Rule.column("p.unitOfMeasure"));
-        SORT.put("creationDate",  SortSupport.Rule.column("p.creationDate"));
-        SORT.put("owner",         SortSupport.Rule.column("p.owner.name"));
-        SORT.put("manufacturer",  SortSupport.Rule.column("p.manufacturer.name"));
+        SORT.put("id",            SortSupport.Rule.column("p.id", Long.class));
+        SORT.put("name",          SortSupport.Rule.column("p.name", String.class));
+        SORT.put("price",         SortSupport.Rule.column("p.price", Long.class));
+        SORT.put("rating",        SortSupport.Rule.column("p.rating", Long.class));
+        SORT.put("partNumber",    SortSupport.Rule.column("p.partNumber", String.class));
+        SORT.put("unitOfMeasure", SortSupport.Rule.column("p.unitOfMeasure", UnitOfMeasure.class));
+        SORT.put("creationDate",  SortSupport.Rule.column("p.creationDate", Date.class));
+        SORT.put("owner",         SortSupport.Rule.nullableColumn("o.name", String.class));
+        SORT.put("manufacturer",  SortSupport.Rule.column("m.name", String.class));
     }
 
-    public List<Product> findFiltered(
+    /**
+     * Pages by {@code offset}, or by keyset when {@code after} (a previous {@code nextCursor}) is given.
+     * {@code withTotal} adds the filtered total to offset pages (see {@link SortSupport#WINDOW_COUNT}). Rows are
+     * projected in the one joined query, so no products are loaded and no manufacturer or owner is fetched per row.
+     */
+    public SortSupport.Slice<ProductListRow> findFiltered(
             String name, String partNumber, String unitOfMeasureLike,
             String organizationName, String personName,
-            int offset, int limit, String sort, String dir
+            String after, int offset, int limit, String sort, String dir, boolean withTotal
     ) {
         List<UnitOfMeasure> units = null;
         if (unitOfMeasureLike != null && !unitOfMeasureLike.isBlank()) {
@@ -59,16 +176,23 @@ public class ProductRepository {
             units = Arrays.stream(UnitOfMeasure.values())
                     .filter(u -> u.name().toLowerCase().contains(n))
                     .toList();
-            if (units.isEmpty()) return List.of();
+            if (units.isEmpty()) return SortSupport.Slice.empty();
         }
 
+        var built = SortSupport.build(SORT, sort, dir, "id");
+        var cursor = after != null && !after.isBlank() ? built.decode(after) : null;
+        boolean windowTotal = withTotal && cursor == null;
+
         StringBuilder hql = new StringBuilder("""
-            select p
+            select new ru.productinventory.repository.projection.ProductListRow(
+                       p.id, p.version, p.name, p.coordinates.x, p.coordinates.y, p.creationDate, p.unitOfMeasure,
+                       m.id, m.name, p.price, p.manufactureCost, p.rating, p.partNumber, o.id, o.name),
+                   %s, p.id%s
             from Product p
               left join p.manufacturer m
               left join p.owner o
             where 1=1
-        """);
+        """.formatted(built.keyExpr(), windowTotal ? SortSupport.WINDOW_COUNT : ""));
 
         if (name != null && !name.isBlank())             hql.append(" and lower(p.name)       like lower(:name) ");
         if (partNumber != null && !partNumber.isBlank()) hql.append(" and lower(p.partNumber) like lower(:partNumber) ");
@@ -77,20 +201,23 @@ public class ProductRepository {
             hql.append(" and lower(m.name)       like lower(:orgName) ");
         if (personName != null && !personName.isBlank())
             hql.append(" and lower(o.name)       like lower(:personName) ");
+        if (cursor != null)                               hql.append(" and ").append(built.after(cursor));
 
-        var built = SortSupport.build(SORT, sort, dir, "id");
         hql.append(" order by ").append(built.orderBy());
 
-        var q = s().createQuery(hql.toString(), Product.class);
-        if (name != null && !name.isBlank())             q.setParameter("name", "%" + name.trim() + "%");
-        if (partNumber != null && !partNumber.isBlank()) q.setParameter("partNumber", "%" + partNumber.trim() + "%");
+        var q = s().createQuery(hql.toString(), Object[].class);
+        if (name != null && !name.isBlank())             q.setParameter("name", LikePatterns.contains(name));
+        if (partNumber != null && !partNumber.isBlank()) q.setParameter("partNumber", LikePatterns.contains(partNumber));
         if (units != null)                                q.setParameterList("units", units);
-        if (organizationName != null && !organizationName.isBlank()) q.setParameter("orgName", "%" + organizationName.trim() + "%");
-        if (personName != null && !personName.isBlank())             q.setParameter("personName", "%" + personName.trim() + "%");
+        if (organizationName != null && !organizationName.isBlank()) q.setParameter("orgName", LikePatterns.contains(organizationName));
+        if (personName != null && !personName.isBlank())             q.setParameter("personName", LikePatterns.contains(personName));
+        if (cursor != null)                               built.bind(q, cursor);
 
-        q.setFirstResult(Math.max(offset,0));
-        q.setMaxResults(Math.max(limit,1));
-        return q.list();
+        if (cursor == null) q.setFirstResult(Math.max(offset,0));
+        q.setMaxResults(Math.max(limit,1) + 1);
+        return windowTotal
+                ? built.sliceWithTotal(q.list(), Math.max(limit,1), offset <= 0)
+                : built.slice(q.list(), Math.max(limit,1));
     }
 
     public long countFiltered(
@@ -123,12 +250,113 @@ public class ProductRepository {
             hql.append(" and lower(o.name)       like lower(:personName) ");
 
         var q = s().createQuery(hql.toString(), Long.class);
-        if (name != null && !name.isBlank())             q.setParameter("name", "%" + name.trim() + "%");
-        if (partNumber != null && !partNumber.isBlank()) q.setParameter("partNumber", "%" + partNumber.trim() + "%");
+        if (name != null && !name.isBlank())             q.setParameter("name", LikePatterns.contains(name));
+        if (partNumber != null && !partNumber.isBlank()) q.setParameter("partNumber", LikePatterns.contains(partNumber));
         if (units != null)                                q.setParameterList("units", units);
-        if (organizationName != null && !organizationName.isBlank()) q.setParameter("orgName", "%" + organizationName.trim() + "%");
-        if (personName != null && !personName.isBlank())             q.setParameter("personName", "%" + personName.trim() + "%");
+        if (organizationName != null && !organizationName.isBlank()) q.setParameter("orgName", LikePatterns.contains(organizationName));
+        if (personName != null && !personName.isBlank())             q.setParameter("personName", LikePatterns.contains(personName));
 
         return q.getSingleResult();
     }
+
+    /**
+     * Every row matching the {@link #findFiltered} filters, in id order, read from a forward-only cursor
+     * {@code fetchSize} rows at a time. Projected rows never enter the session, so memory stays flat however many
+     * rows the filter matches. The stream holds the cursor open and must be closed, within the transaction.
+     */
+    public Stream<ProductListRow> streamFiltered(
+            String name, String partNumber, String unitOfMeasureLike,
+            String organizationName, String personName, int fetchSize
+    ) {
+        List<UnitOfMeasure> units = null;
+        if (unitOfMeasureLike != null && !unitOfMeasureLike.isBlank()) {
+            String n = unitOfMeasureLike.trim().toLowerCase();
+            units = Arrays.stream(UnitOfMeasure.values())
+                    .filter(u -> u.name().toLowerCase().contains(n))
+                    .toList();
+            if (units.isEmpty()) return Stream.empty();
+        }
+
+        StringBuilder hql = new StringBuilder("""
+            select new ru.productinventory.repository.projection.ProductListRow(
+                       p.id, p.version, p.name, p.coordinates.x, p.coordinates.y, p.creationDate, p.unitOfMeasure,
+                       m.id, m.name, p.price, p.manufactureCost, p.rating, p.partNumber, o.id, o.name)
+            from Product p
+              left join p.manufacturer m
+              left join p.owner o
+            where 1=1
+        """);
+
+        if (name != null && !name.isBlank())             hql.append(" and lower(p.name)       like lower(:name) ");
+        if (partNumber != null && !partNumber.isBlank()) hql.append(" and lower(p.partNumber) like lower(:partNumber) ");
+        if (units != null)                                hql.append(" and p.unitOfMeasure in (:units) ");
+        if (organizationName != null && !organizationName.isBlank())
+            hql.append(" and lower(m.name)       like lower(:orgName) ");
+        if (personName != null && !personName.isBlank())
+            hql.append(" and lower(o.name)       like lower(:personName) ");
+
+        hql.append(" order by p.id");
+
+        var q = s().createQuery(hql.toString(), ProductListRow.class);
+        if (name != null && !name.isBlank())             q.setParameter("name", LikePatterns.contains(name));
+        if (partNumber != null && !partNumber.isBlank()) q.setParameter("partNumber", LikePatterns.contains(partNumber));
+        if (units != null)                                q.setParameterList("units", units);
+        if (organizationName != null && !organizationName.isBlank()) q.setParameter("orgName", LikePatterns.contains(organizationName));
+        if (personName != null && !personName.isBlank())             q.setParameter("personName", LikePatterns.contains(personName));
+
+        return q.setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .stream();
+    }
+
+    /** Planner estimate of {@link #countFiltered}; same filters, native SQL so it can be EXPLAINed. */
+    public long estimateFiltered(
+            String name, String partNumber, String unitOfMeasureLike,
+            String organizationName, String personName
+    ) {
+        List<String> units = null;
+        if (unitOfMeasureLike != null && !unitOfMeasureLike.isBlank()) {
+            String n = unitOfMeasureLike.trim().toLowerCase();
+            units = Arrays.stream(UnitOfMeasure.values())
+                    .map(Enum::name)
+                    .filter(u -> u.toLowerCase().contains(n))
+                    .toList();
+            if (units.isEmpty()) return 0L;
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            select 1
+            from product p
+              left join organization m on m.id = p.manufacturer_id
+              left join person o on o.id = p.owner_id
+            where 1=1
+        """);
+        Map<String, Object> params = new HashMap<>();
+
+        if (name != null && !name.isBlank()) {
+            sql.append(" and lower(p.name)        like lower(:name) ");
+            params.put("name", LikePatterns.contains(name));
+        }
+        if (partNumber != null && !partNumber.isBlank()) {
+            sql.append(" and lower(p.part_number) like lower(:partNumber) ");
+            params.put("partNumber", LikePatterns.contains(partNumber));
+        }
+        if (units != null) {
+            sql.append(" and p.unit_of_measure in (:units) ");
+            params.put("units", units);
+        }
+        if (organizationName != null && !organizationName.isBlank()) {
+            sql.append(" and lower(m.name)        like lower(:orgName) ");
+            params.put("orgName", LikePatterns.contains(organizationName));
+        }
+        if (personName != null && !personName.isBlank()) {
+            sql.append(" and lower(o.name)        like lower(:personName) ");
+            params.put("personName", LikePatterns.contains(personName));
+        }
+        return RowEstimates.query(s(), sql.toString(), params);
+    }
+
+    public long estimateTotal() {
+        return RowEstimates.table(s(), "product");
+    }
 }
@@ -0,0 +1,391 @@
+package ru.productinventory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.NativeQuery;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Repository;
+import ru.productinventory.model.Address;
+import ru.productinventory.model.Organization;
+import ru.productinventory.model.Person;
+import ru.productinventory.model.Product;
+import ru.productinventory.model.UnitOfMeasure;
+import ru.productinventory.repository.util.IdBlocks;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Set-based product import: rows are streamed with COPY into a per-transaction staging table and moved into
+ * {@code product} with plain SQL. The staging table is a temporary table dropped on commit, so it is unlogged,
+ * private to the importing session and invisible to SERIALIZABLE conflict tracking of concurrent loads.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStagingRepository {
+    private final SessionFactory sf;
+
+    private Session s() {
+        return sf.getCurrentSession();
+    }
+
+    private static final String STAGE = "product_import_stage";
+
+    /**
+     * Native DML naming the tables it writes. Hibernate then invalidates only their second-level cache regions and
+     * cached queries; an unnamed native statement would clear every region.
+     */
+    private MutationQuery mutation(String sql, String... tables) {
+        NativeQuery<?> q = (NativeQuery<?>) s().createNativeMutationQuery(sql);
+        for (String t : tables) q.addSynchronizedQuerySpace(t);
+        return q;
+    }
+
+    public record StageRow(int lineNo, String orgKey, Organization org, String orgError,
+                           String ownerKey, Person owner, Product product, String partNumberKey) {
+    }
+
+    public record Conflict(int lineNo, String partNumber, String manufacturerFullName, Long existingId) {
+    }
+
+    private static final String STAGE_COLUMNS = """
+            line_no, org_key, org_error, org_name, org_full_name, org_annual_turnover, org_employees_count, org_rating,
+            org_official_zip_code, org_official_town_x, org_official_town_y, org_official_town_name,
+            org_postal_zip_code, org_postal_town_x, org_postal_town_y, org_postal_town_name,
+            owner_key, owner_name, owner_eye_color, owner_hair_color, owner_loc_x, owner_loc_y, owner_loc_name,
+            owner_height, owner_nationality,
+            name, coordinates_x, coordinates_y, unit_of_measure, price, manufacture_cost, rating, part_number,
+            part_number_key""";
+
+    public void createStage() {
+        mutation("""
+                create temp table product_import_stage (
+                    line_no                integer primary key,
+                    org_key                text not null,
+                    org_error              text,
+                    org_name               text,
+                    org_full_name          text,
+                    org_annual_turnover    double precision,
+                    org_employees_count    integer,
+                    org_rating             integer,
+                    org_official_zip_code  text,
+                    org_official_town_x    bigint,
+                    org_official_town_y    bigint,
+                    org_official_town_name text,
+                    org_postal_zip_code    text,
+                    org_postal_town_x      bigint,
+                    org_postal_town_y      bigint,
+                    org_postal_town_name   text,
+                    owner_key              text,
+                    owner_name             text,
+                    owner_eye_color        text,
+                    owner_hair_color       text,
+                    owner_loc_x            bigint,
+                    owner_loc_y            bigint,
+                    owner_loc_name         text,
+                    owner_height           double precision,
+                    owner_nationality      text,
+                    name                   text not null,
+                    coordinates_x          double precision not null,
+                    coordinates_y          bigint not null,
+                    unit_of_measure        text not null,
+                    price                  bigint not null,
+                    manufacture_cost       integer not null,
+                    rating                 bigint not null,
+                    part_number            text not null,
+                    part_number_key        text not null,
+                    org_id                 integer,
+                    owner_id               bigint
+                ) on commit drop
+                """, STAGE).executeUpdate();
+    }
+
+    public StageWriter openWriter() {
+        return s().doReturningWork(conn -> new StageWriter(conn.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("copy product_import_stage (" + STAGE_COLUMNS + ") from stdin with (format csv)")));
+    }
+
+    /** Links rows to existing organizations; the lowest id wins when several match a key. */
+    public void resolveExistingOrganizations() {
+        mutation("""
+                update product_import_stage s set org_id = o.id
+                from (select distinct on (full_name_norm) full_name_norm as k, id
+                      from organization
+                      where full_name_norm in (select org_key from product_import_stage)
+                      order by full_name_norm, id) o
+                where o.k = s.org_key
+                """, STAGE).executeUpdate();
+    }
+
+    /** The mapping error of the first row of any organization that would have to be created from it. */
+    public Optional<String> findNewOrganizationError() {
+        List<String> r = s().createNativeQuery("""
+                select org_error from product_import_stage
+                where org_id is null and org_error is not null
+                  and line_no in (select min(line_no) from product_import_stage where org_id is null group by org_key)
+                order by line_no
+                limit 1
+                """, String.class).list();
+        return r.stream().findFirst();
+    }
+
+    /**
+     * Creates one organization per unresolved key from its first row and links all rows of that key. Ids come from
+     * {@link IdBlocks}.
+     */
+    public int insertNewOrganizations() {
+        long n = s().createNativeQuery(
+                "select count(distinct org_key) from product_import_stage where org_id is null", Long.class)
+                .getSingleResult();
+        if (n == 0) return 0;
+        mutation("""
+                with firsts as (
+                    select distinct on (org_key) *
+                    from product_import_stage
+                    where org_id is null
+                    order by org_key, line_no
+                ), %s, ins as (
+                    insert into organization (id, name, annual_turnover, employees_count, full_name, full_name_norm,
+                                              rating, official_zip_code, official_town_x, official_town_y,
+                                              official_town_name, postal_zip_code, postal_town_x, postal_town_y,
+                                              postal_town_name)
+                    select new_id, org_name, org_annual_turnover, org_employees_count, org_full_name, org_key,
+                           org_rating, org_official_zip_code, org_official_town_x, org_official_town_y,
+                           org_official_town_name, org_postal_zip_code, org_postal_town_x, org_postal_town_y,
+                           org_postal_town_name
+                    from new_orgs
+                )
+                update product_import_stage s set org_id = n.new_id
+                from new_orgs n
+                where s.org_id is null and s.org_key = n.org_key
+                """.formatted(IdBlocks.assign("new_orgs", "organization_seq", "firsts", "org_key")),
+                STAGE, "organization").executeUpdate();
+        return (int) n;
+    }
+
+    /** Links rows to existing persons; the lowest id wins when several match a key. */
+    public void resolveExistingOwners() {
+        mutation("""
+                update product_import_stage s set owner_id = p.id
+                from (select distinct on (name_norm) name_norm as k, id
+                      from person
+                      where name_norm in (select owner_key from product_import_stage where owner_key is not null)
+                      order by name_norm, id) p
+                where p.k = s.owner_key
+                """, STAGE).executeUpdate();
+    }
+
+    /**
+     * Creates one person per unresolved owner key from its first row and links all rows of that key. Ids come from
+     * {@link IdBlocks}.
+     */
+    public int insertNewOwners() {
+        long n = s().createNativeQuery("""
+                select count(distinct owner_key) from product_import_stage
+                where owner_key is not null and owner_id is null
+                """, Long.class).getSingleResult();
+        if (n == 0) return 0;
+        mutation("""
+                with firsts as (
+                    select distinct on (owner_key) *
+                    from product_import_stage
+                    where owner_key is not null and owner_id is null
+                    order by owner_key, line_no
+                ), %s, ins as (
+                    insert into person (id, name, name_norm, eye_color, hair_color, loc_x, loc_y, loc_name, height,
+                                        nationality)
+                    select new_id, owner_name, owner_key, owner_eye_color, owner_hair_color, owner_loc_x, owner_loc_y,
+                           owner_loc_name, owner_height, owner_nationality
+                    from new_owners
+                )
+                update product_import_stage s set owner_id = n.new_id
+                from new_owners n
+                where s.owner_id is null and s.owner_key = n.owner_key
+                """.formatted(IdBlocks.assign("new_owners", "person_seq", "firsts", "owner_key")),
+                STAGE, "person").executeUpdate();
+        return (int) n;
+    }
+
+    /** The first row repeating a (manufacturer, partNumber) pair of an earlier row. */
+    public Optional<Conflict> findFirstDuplicateInBatch() {
+        List<Object[]> r = s().createNativeQuery("""
+                select d.line_no, d.part_number, o.full_name
+                from (select line_no, part_number, org_id,
+                             row_number() over (partition by org_key, part_number_key order by line_no) as rn
+                      from product_import_stage) d
+                join organization o on o.id = d.org_id
+                where d.rn = 2
+                order by d.line_no
+                limit 1
+                """, Object[].class).list();
+        return r.stream().findFirst()
+                .map(row -> new Conflict(((Number) row[0]).intValue(), (String) row[1], (String) row[2], null));
+    }
+
+    /** The first row whose (manufacturer, partNumber) pair already exists in {@code product}. */
+    public Optional<Conflict> findFirstExisting() {
+        List<Object[]> r = s().createNativeQuery("""
+                select s.line_no, s.part_number, o.full_name, p.id
+                from product_import_stage s
+                join organization o on o.id = s.org_id
+                join product p on p.manufacturer_id = s.org_id and p.part_number_norm = s.part_number_key
+                order by s.line_no, p.id
+                limit 1
+                """, Object[].class).list();
+        return r.stream().findFirst()
+                .map(row -> new Conflict(((Number) row[0]).intValue(), (String) row[1], (String) row[2],
+                        ((Number) row[3]).longValue()));
+    }
+
+    /** Ids come from {@link IdBlocks}, in line order. */
+    public int insertProducts() {
+        return mutation("""
+                with %s
+                insert into product (id, name, coordinates_x, coordinates_y, unit_of_measure, manufacturer_id,
+                                     price, manufacture_cost, rating, part_number, part_number_norm, owner_id)
+                select new_id, name, coordinates_x, coordinates_y, unit_of_measure, org_id,
+                       price, manufacture_cost, rating, part_number, part_number_key, owner_id
+                from new_products
+                order by line_no
+                """.formatted(IdBlocks.assign("new_products", "product_seq", STAGE, "line_no")),
+                "product").executeUpdate();
+    }
+
+    /** Adds the staged rows to {@code delta}, grouped per manufacturer, unit and owner in one query. */
+    public void addStageTotals(ProductStatsRepository.Delta delta) {
+        List<Object[]> rows = s().createNativeQuery("""
+                select grouping(org_id), grouping(unit_of_measure), org_id, unit_of_measure, owner_id, count(*),
+                       sum(price), min(price), max(price), sum(rating), min(rating), max(rating)
+                from product_import_stage
+                group by grouping sets ((org_id), (unit_of_measure), (owner_id))
+                """, Object[].class).list();
+        for (Object[] r : rows) {
+            long count = ((Number) r[5]).longValue();
+            if (((Number) r[0]).intValue() == 0) {
+                delta.addManufacturer(((Number) r[2]).intValue(), count,
+                        ((Number) r[6]).longValue(), ((Number) r[7]).longValue(), ((Number) r[8]).longValue(),
+                        ((Number) r[9]).longValue(), ((Number) r[10]).longValue(), ((Number) r[11]).longValue());
+            } else if (((Number) r[1]).intValue() == 0) {
+                delta.unit(UnitOfMeasure.valueOf((String) r[3]), count);
+            } else {
+                delta.owner(r[4] != null ? ((Number) r[4]).longValue() : null, count);
+            }
+        }
+    }
+
+    private RuntimeException convert(SQLException e) {
+        return s().unwrap(SessionImplementor.class).getJdbcServices().getSqlExceptionHelper()
+                .convert(e, "COPY into product_import_stage");
+    }
+
+    /** Buffers CSV rows and pushes them to the server in blocks of about 64 KB. */
+    public final class StageWriter {
+        private static final int FLUSH_CHARS = 1 << 16;
+
+        private final CopyIn copy;
+        private final StringBuilder buf = new StringBuilder(FLUSH_CHARS + 1024);
+
+        private StageWriter(CopyIn copy) {
+            this.copy = copy;
+        }
+
+        public void add(StageRow r) {
+            Organization o = r.org();
+            Address oa = o == null ? null : o.getOfficialAddress();
+            Address pa = o == null ? null : o.getPostalAddress();
+            Person w = r.owner();
+            Product p = r.product();
+
+            buf.append(r.lineNo());
+            text(r.orgKey());
+            text(r.orgError());
+            text(o == null ? null : o.getName());
+            text(o == null ? null : o.getFullName());
+            value(o == null ? null : o.getAnnualTurnover());
+            value(o == null ? null : o.getEmployeesCount());
+            value(o == null ? null : o.getRating());
+            text(oa == null ? null : oa.getZipCode());
+            value(oa == null ? null : oa.getTown().getX());
+            value(oa == null ? null : oa.getTown().getY());
+            text(oa == null ? null : oa.getTown().getName());
+            text(pa == null ? null : pa.getZipCode());
+            value(pa == null ? null : pa.getTown().getX());
+            value(pa == null ? null : pa.getTown().getY());
+            text(pa == null ? null : pa.getTown().getName());
+            text(r.ownerKey());
+            text(w == null ? null : w.getName());
+            value(w == null ? null : w.getEyeColor());
+            value(w == null ? null : w.getHairColor());
+            value(w == null || w.getLocation() == null ? null : w.getLocation().getX());
+            value(w == null || w.getLocation() == null ? null : w.getLocation().getY());
+            text(w == null || w.getLocation() == null ? null : w.getLocation().getName());
+            value(w == null ? null : w.getHeight());
+            value(w == null ? null : w.getNationality());
+            text(p.getName());
+            value(p.getCoordinates().getX());
+            value(p.getCoordinates().getY());
+            value(p.getUnitOfMeasure());
+            value(p.getPrice());
+            value(p.getManufactureCost());
+            value(p.getRating());
+            text(p.getPartNumber());
+            text(r.partNumberKey());
+            buf.append('\n');
+
+            if (buf.length() >= FLUSH_CHARS) flush();
+        }
+
+        /** Completes the COPY and returns the number of staged rows. */
+        public long finish() {
+            flush();
+            try {
+                return copy.endCopy();
+            } catch (SQLException e) {
+                throw convert(e);
+            }
+        }
+
+        public void abort() {
+            try {
+                if (copy.isActive()) copy.cancelCopy();
+            } catch (SQLException ignored) {
+                // the surrounding transaction is rolled back anyway
+            }
+        }
+
+        private void flush() {
+            if (buf.isEmpty()) return;
+            byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+            buf.setLength(0);
+            try {
+                copy.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw convert(e);
+            }
+        }
+
+        private void value(Object v) {
+            buf.append(',');
+            if (v instanceof Enum<?> e) buf.append(e.name());
+            else if (v != null) buf.append(v);
+        }
+
+        private void text(String v) {
+            buf.append(',');
+            if (v == null) return;
+            buf.append('"');
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                if (c == '"') buf.append('"');
+                buf.append(c);
+            }
+            buf.append('"');
+        }
+    }
+}
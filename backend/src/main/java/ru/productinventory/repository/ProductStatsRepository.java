@@ -0,0 +1,381 @@
+package ru.productinventory.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import ru.productinventory.dto.analytics.ManufacturerStatsDTO;
+import ru.productinventory.dto.analytics.OwnerStatsDTO;
+import ru.productinventory.dto.analytics.UnitStatsDTO;
+import ru.productinventory.model.Product;
+import ru.productinventory.model.UnitOfMeasure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Product aggregates per manufacturer, unit of measure and owner, kept in the summary tables of
+ * db/migration/V6. Writers collect a {@link Delta}, {@link #enqueue} it in the outbox of V12 and {@link #apply} it
+ * after commit; reads touch only the summary rows they return.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStatsRepository {
+    private final SessionFactory sf;
+    private final ObjectMapper json;
+
+    private Session s() {
+        return sf.getCurrentSession();
+    }
+
+    /** {@code product_owner_stats} key of products without owner. */
+    private static final long NO_OWNER = 0L;
+
+    /**
+     * Changes to the aggregates, merged per key. Keys are kept sorted so concurrent applies lock summary rows in the
+     * same order.
+     */
+    public static final class Delta {
+        private final Map<Integer, Range> manufacturers = new TreeMap<>();
+        private final Map<String, Long> units = new TreeMap<>();
+        private final Map<Long, Long> owners = new TreeMap<>();
+
+        public void add(Product p) {
+            manufacturer(p.getManufacturer().getId()).add(1, p.getPrice(), p.getPrice(), p.getPrice(),
+                    p.getRating(), p.getRating(), p.getRating());
+            unit(p.getUnitOfMeasure(), 1);
+            owner(p.getOwner() != null ? p.getOwner().getId() : null, 1);
+        }
+
+        /** Takes {@code p}'s current values; later changes to {@code p} do not affect the delta. */
+        public void remove(Product p) {
+            manufacturer(p.getManufacturer().getId()).remove(p.getPrice(), p.getRating());
+            unit(p.getUnitOfMeasure(), -1);
+            owner(p.getOwner() != null ? p.getOwner().getId() : null, -1);
+        }
+
+        /** Adds {@code count} products of one manufacturer with the given price and rating sums and bounds. */
+        public void addManufacturer(int manufacturerId, long count, long priceSum, long priceMin, long priceMax,
+                                    long ratingSum, long ratingMin, long ratingMax) {
+            manufacturer(manufacturerId).add(count, priceSum, priceMin, priceMax, ratingSum, ratingMin, ratingMax);
+        }
+
+        public void unit(UnitOfMeasure unit, long count) {
+            units.merge(unit.name(), count, Long::sum);
+        }
+
+        /** {@code ownerId} null for products without owner. */
+        public void owner(Long ownerId, long count) {
+            owners.merge(ownerId != null ? ownerId : NO_OWNER, count, Long::sum);
+        }
+
+        public boolean isEmpty() {
+            return manufacturers.isEmpty() && units.isEmpty() && owners.isEmpty();
+        }
+
+        private Range manufacturer(Integer id) {
+            return manufacturers.computeIfAbsent(id, k -> new Range());
+        }
+
+        private Stored stored() {
+            Map<Integer, Long[]> m = new TreeMap<>();
+            manufacturers.forEach((id, r) -> m.put(id, r.fields()));
+            return new Stored(m, units, owners);
+        }
+
+        /** Adds a stored delta to this one. */
+        private void add(Stored d) {
+            d.manufacturers().forEach((id, f) -> manufacturer(id).add(f));
+            d.units().forEach((k, n) -> units.merge(k, n, Long::sum));
+            d.owners().forEach((k, n) -> owners.merge(k, n, Long::sum));
+        }
+    }
+
+    /** A {@link Delta} as stored in {@code product_stats_outbox}; manufacturers as {@link Range#fields}. */
+    private record Stored(Map<Integer, Long[]> manufacturers, Map<String, Long> units, Map<Long, Long> owners) {
+    }
+
+    /** One manufacturer's share of a {@link Delta}: added bounds, and removed bounds that may need a recompute. */
+    private static final class Range {
+        long count, priceSum, ratingSum;
+        Long priceMin, priceMax, ratingMin, ratingMax;
+        Long removedPriceMin, removedPriceMax, removedRatingMin, removedRatingMax;
+
+        void add(long n, long pSum, long pMin, long pMax, long rSum, long rMin, long rMax) {
+            count += n;
+            priceSum += pSum;
+            ratingSum += rSum;
+            priceMin = min(priceMin, pMin);
+            priceMax = max(priceMax, pMax);
+            ratingMin = min(ratingMin, rMin);
+            ratingMax = max(ratingMax, rMax);
+        }
+
+        void remove(long price, long rating) {
+            count--;
+            priceSum -= price;
+            ratingSum -= rating;
+            removedPriceMin = min(removedPriceMin, price);
+            removedPriceMax = max(removedPriceMax, price);
+            removedRatingMin = min(removedRatingMin, rating);
+            removedRatingMax = max(removedRatingMax, rating);
+        }
+
+        boolean removedAny() {
+            return removedPriceMin != null;
+        }
+
+        Long[] fields() {
+            return new Long[]{count, priceSum, ratingSum, priceMin, priceMax, ratingMin, ratingMax,
+                    removedPriceMin, removedPriceMax, removedRatingMin, removedRatingMax};
+        }
+
+        /** Merges another range given as {@link #fields}. */
+        void add(Long[] f) {
+            count += f[0];
+            priceSum += f[1];
+            ratingSum += f[2];
+            priceMin = min(priceMin, f[3]);
+            priceMax = max(priceMax, f[4]);
+            ratingMin = min(ratingMin, f[5]);
+            ratingMax = max(ratingMax, f[6]);
+            removedPriceMin = min(removedPriceMin, f[7]);
+            removedPriceMax = max(removedPriceMax, f[8]);
+            removedRatingMin = min(removedRatingMin, f[9]);
+            removedRatingMax = max(removedRatingMax, f[10]);
+        }
+
+        private static Long min(Long a, Long b) {
+            return a == null ? b : b == null ? a : Long.valueOf(Math.min(a, b));
+        }
+
+        private static Long max(Long a, Long b) {
+            return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+        }
+    }
+
+    /** Stores {@code d} in the outbox, in the calling (writing) transaction; returns the outbox id. */
+    public long enqueue(Delta d) {
+        String stored;
+        try {
+            stored = json.writeValueAsString(d.stored());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store analytics delta", e);
+        }
+        return s().createNativeQuery(
+                        "insert into product_stats_outbox (delta) values (cast(:delta as jsonb)) returning id",
+                        Long.class)
+                .setParameter("delta", stored)
+                .getSingleResult();
+    }
+
+    /**
+     * Deletes outbox entry {@code id}; false when it is gone, i.e. was applied already. Synchronized on the outbox
+     * only, so the delete does not clear the second-level cache regions.
+     */
+    public boolean dequeue(long id) {
+        return ((NativeQuery<?>) s().createNativeMutationQuery("delete from product_stats_outbox where id = :id"))
+                .addSynchronizedQuerySpace("product_stats_outbox")
+                .setParameter("id", id)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Deletes up to {@code limit} of the oldest outbox entries, skipping those another transaction holds, and
+     * returns them merged into one delta together with their number.
+     */
+    public Drained dequeueOldest(int limit) {
+        List<String> rows = s().createNativeQuery("""
+                        delete from product_stats_outbox
+                        where id in (select id from product_stats_outbox order by id limit :limit for update skip locked)
+                        returning cast(delta as text)
+                        """, String.class)
+                .setParameter("limit", limit)
+                .list();
+        Delta merged = new Delta();
+        for (String row : rows) {
+            try {
+                merged.add(json.readValue(row, Stored.class));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot read analytics delta", e);
+            }
+        }
+        return new Drained(rows.size(), merged);
+    }
+
+    public record Drained(int entries, Delta delta) {
+    }
+
+    /**
+     * Adds the delta to the summary rows in a few JDBC batches. A manufacturer that lost a product whose price or
+     * rating was at its bounds gets them recomputed from {@code product}; rows whose count drops to 0 are deleted.
+     */
+    public void apply(Delta d) {
+        if (d.isEmpty()) return;
+        s().doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    insert into product_manufacturer_stats as s
+                        (manufacturer_id, product_count, price_sum, price_min, price_max,
+                         rating_sum, rating_min, rating_max)
+                    values (?, ?, ?, ?, ?, ?, ?, ?)
+                    on conflict (manufacturer_id) do update set
+                        product_count = s.product_count + excluded.product_count,
+                        price_sum     = s.price_sum + excluded.price_sum,
+                        price_min     = least(s.price_min, excluded.price_min),
+                        price_max     = greatest(s.price_max, excluded.price_max),
+                        rating_sum    = s.rating_sum + excluded.rating_sum,
+                        rating_min    = least(s.rating_min, excluded.rating_min),
+                        rating_max    = greatest(s.rating_max, excluded.rating_max)
+                    """)) {
+                for (var e : d.manufacturers.entrySet()) {
+                    Range r = e.getValue();
+                    ps.setInt(1, e.getKey());
+                    ps.setLong(2, r.count);
+                    ps.setLong(3, r.priceSum);
+                    setLong(ps, 4, r.priceMin);
+                    setLong(ps, 5, r.priceMax);
+                    ps.setLong(6, r.ratingSum);
+                    setLong(ps, 7, r.ratingMin);
+                    setLong(ps, 8, r.ratingMax);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    update product_manufacturer_stats s
+                    set (price_min, price_max, rating_min, rating_max) =
+                        (select min(p.price), max(p.price), min(p.rating), max(p.rating)
+                         from product p where p.manufacturer_id = s.manufacturer_id)
+                    where s.manufacturer_id = ?
+                      and (s.price_min >= ? or s.price_max <= ? or s.rating_min >= ? or s.rating_max <= ?)
+                    """)) {
+                boolean any = false;
+                for (var e : d.manufacturers.entrySet()) {
+                    Range r = e.getValue();
+                    if (!r.removedAny()) continue;
+                    ps.setInt(1, e.getKey());
+                    ps.setLong(2, r.removedPriceMin);
+                    ps.setLong(3, r.removedPriceMax);
+                    ps.setLong(4, r.removedRatingMin);
+                    ps.setLong(5, r.removedRatingMax);
+                    ps.addBatch();
+                    any = true;
+                }
+                if (any) ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "delete from product_manufacturer_stats where manufacturer_id = ? and product_count <= 0")) {
+                boolean any = false;
+                for (var e : d.manufacturers.entrySet()) {
+                    if (!e.getValue().removedAny()) continue;
+                    ps.setInt(1, e.getKey());
+                    ps.addBatch();
+                    any = true;
+                }
+                if (any) ps.executeBatch();
+            }
+            upsertCounts(conn, "product_unit_stats", "unit_of_measure", d.units, Types.VARCHAR);
+            upsertCounts(conn, "product_owner_stats", "owner_id", d.owners, Types.BIGINT);
+        });
+    }
+
+    private static void upsertCounts(Connection conn, String table, String key, Map<?, Long> counts,
+                                     int keyType) throws SQLException {
+        if (counts.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "insert into " + table + " as s (" + key + ", product_count) values (?, ?) "
+                        + "on conflict (" + key + ") do update set product_count = s.product_count + excluded.product_count")) {
+            for (var e : counts.entrySet()) {
+                ps.setObject(1, e.getKey(), keyType);
+                ps.setLong(2, e.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "delete from " + table + " where " + key + " = ? and product_count <= 0")) {
+            for (var k : counts.keySet()) {
+                ps.setObject(1, k, keyType);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int i, Long v) throws SQLException {
+        if (v == null) ps.setNull(i, Types.BIGINT);
+        else ps.setLong(i, v);
+    }
+
+    /** Manufacturers with the most products first. */
+    public List<ManufacturerStatsDTO> topManufacturers(int limit) {
+        return s().createNativeQuery("""
+                        select s.manufacturer_id, o.name, s.product_count,
+                               (s.price_sum / s.product_count)::float8, s.price_min, s.price_max,
+                               (s.rating_sum / s.product_count)::float8, s.rating_min, s.rating_max
+                        from product_manufacturer_stats s
+                          left join organization o on o.id = s.manufacturer_id
+                        where s.product_count > 0
+                        order by s.product_count desc, s.manufacturer_id
+                        limit :limit
+                        """, Object[].class)
+                .setParameter("limit", limit)
+                .list().stream()
+                .map(r -> new ManufacturerStatsDTO(((Number) r[0]).intValue(), (String) r[1],
+                        ((Number) r[2]).longValue(),
+                        ((Number) r[3]).doubleValue(), ((Number) r[4]).longValue(), ((Number) r[5]).longValue(),
+                        ((Number) r[6]).doubleValue(), ((Number) r[7]).longValue(), ((Number) r[8]).longValue()))
+                .toList();
+    }
+
+    public List<UnitStatsDTO> units() {
+        return s().createNativeQuery("""
+                        select unit_of_measure, product_count
+                        from product_unit_stats
+                        where product_count > 0
+                        order by unit_of_measure
+                        """, Object[].class)
+                .list().stream()
+                .map(r -> new UnitStatsDTO(UnitOfMeasure.valueOf((String) r[0]), ((Number) r[1]).longValue()))
+                .toList();
+    }
+
+    /** Owners with the most products first; products without owner are not included. */
+    public List<OwnerStatsDTO> topOwners(int limit) {
+        return s().createNativeQuery("""
+                        select s.owner_id, p.name, s.product_count
+                        from product_owner_stats s
+                          left join person p on p.id = s.owner_id
+                        where s.owner_id <> 0 and s.product_count > 0
+                        order by s.product_count desc, s.owner_id
+                        limit :limit
+                        """, Object[].class)
+                .setParameter("limit", limit)
+                .list().stream()
+                .map(r -> new OwnerStatsDTO(((Number) r[0]).longValue(), (String) r[1], ((Number) r[2]).longValue()))
+                .toList();
+    }
+
+    public long countWithoutOwner() {
+        Number n = s().createNativeQuery(
+                        "select product_count from product_owner_stats where owner_id = 0", Long.class)
+                .uniqueResult();
+        return n == null ? 0L : Math.max(n.longValue(), 0L);
+    }
+
+    /** All products, summed over the few unit rows. */
+    public long countAll() {
+        Number n = s().createNativeQuery(
+                        "select coalesce(sum(product_count), 0)::bigint from product_unit_stats", Long.class)
+                .uniqueResult();
+        return n == null ? 0L : n.longValue();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.productinventory.repository.projection;
+
+/** One organization list row, with both addresses flattened to their columns. */
+public record OrganizationListRow(
+        Integer id,
+        Long version,
+        String name,
+        Double annualTurnover,
+        Integer employeesCount,
+        String fullName,
+        Integer rating,
+        String officialZipCode,
+        Long officialTownX,
+        Long officialTownY,
+        String officialTownName,
+        String postalZipCode,
+        Long postalTownX,
+        Long postalTownY,
+        String postalTownName
+) {
+}
@@ -0,0 +1,19 @@
+package ru.productinventory.repository.projection;
+
+import ru.productinventory.model.Color;
+import ru.productinventory.model.Country;
+
+/** One person list row, with the location flattened to its columns. */
+public record PersonListRow(
+        Long id,
+        Long version,
+        String name,
+        Color eyeColor,
+        Color hairColor,
+        Long locationX,
+        Long locationY,
+        String locationName,
+        Double height,
+        Country nationality
+) {
+}
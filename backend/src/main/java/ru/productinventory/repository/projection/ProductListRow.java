@@ -0,0 +1,25 @@
+package ru.productinventory.repository.projection;
+
+import ru.productinventory.model.UnitOfMeasure;
+
+import java.util.Date;
+
+/** One product list row: the product's columns and the names of its manufacturer and owner. */
+public record ProductListRow(
+        Long id,
+        Long version,
+        String name,
+        Double coordinatesX,
+        Long coordinatesY,
+        Date creationDate,
+        UnitOfMeasure unitOfMeasure,
+        Integer manufacturerId,
+        String manufacturerName,
+        Long price,
+        Integer manufactureCost,
+        Long rating,
+        String partNumber,
+        Long ownerId,
+        String ownerName
+) {
+}
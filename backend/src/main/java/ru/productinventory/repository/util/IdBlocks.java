@@ -0,0 +1,31 @@
+package ru.productinventory.repository.util;
+
+/**
+ * Ids for SQL inserts that bypass Hibernate. The id sequences (V1) advance by {@value #SIZE}, and the pooled
+ * optimizer reads a fetched value v as the block (v - {@value #SIZE} .. v]. A column default takes one value per
+ * row and so spends a whole block on it; these statements take one value per {@value #SIZE} rows.
+ */
+public final class IdBlocks {
+    private IdBlocks() {}
+
+    /** The sequences' increment, and {@code increment_size} in the *.hbm.xml mappings. */
+    public static final int SIZE = 50;
+
+    /**
+     * Two CTEs, to follow a {@code with} or a comma: {@code name} holds the rows of {@code source} (a table or an
+     * earlier CTE) with a fresh id each in {@code new_id}, numbered in {@code order}; {@code name_blocks} fetches the
+     * sequence values for them.
+     */
+    public static String assign(String name, String sequence, String source, String order) {
+        return """
+                %1$s_blocks as (
+                    select row_number() over () - 1 as b, v
+                    from (select nextval('%2$s') as v
+                          from generate_series(1, (select ((count(*) + %5$d - 1) / %5$d)::int from %3$s))) x
+                ), %1$s as (
+                    select r.*, k.v - %5$d + 1 + r.rn %% %5$d as new_id
+                    from (select t.*, row_number() over (order by %4$s) - 1 as rn from %3$s t) r
+                    join %1$s_blocks k on k.b = r.rn / %5$d
+                )""".formatted(name, sequence, source, order, SIZE);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.productinventory.repository.util;
+
+import java.io.*;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position after the last row of a page: its sort value and id, plus the sort key and direction it was taken
+ * from. Clients get it as an opaque URL-safe token.
+ */
+public record KeysetCursor(String sort, String dir, Object value, long id) {
+
+    public String encode() {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeUTF(sort);
+            out.writeUTF(dir);
+            out.writeLong(id);
+            out.writeBoolean(value != null);
+            if (value != null) out.writeUTF(format(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /** @throws IllegalArgumentException if the token is malformed or was issued for another sort */
+    static KeysetCursor decode(String token, String sort, String dir, Class<?> type) {
+        String s, d;
+        long id;
+        String v;
+        try (var in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            s = in.readUTF();
+            d = in.readUTF();
+            id = in.readLong();
+            v = in.readBoolean() ? in.readUTF() : null;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!s.equals(sort) || !d.equals(dir)) {
+            throw new IllegalArgumentException("Cursor was issued for sort " + s + " " + d);
+        }
+        try {
+            return new KeysetCursor(s, d, v == null ? null : parse(v, type), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String format(Object v) {
+        if (v instanceof Enum<?> e) return e.name();
+        if (v instanceof Date d) return d.toInstant().toString();
+        return v.toString();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(String s, Class<?> type) {
+        if (type == String.class) return s;
+        if (type == Long.class) return Long.valueOf(s);
+        if (type == Integer.class) return Integer.valueOf(s);
+        if (type == Double.class) return Double.valueOf(s);
+        if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, s);
+        if (Date.class.isAssignableFrom(type)) return Timestamp.from(Instant.parse(s));
+        throw new IllegalStateException("Unsupported cursor type: " + type.getName());
+    }
+}
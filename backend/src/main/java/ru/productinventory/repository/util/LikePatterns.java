@@ -0,0 +1,24 @@
+package ru.productinventory.repository.util;
+
+/**
+ * Patterns for the {@code lower(column) like lower(:term)} text filters, which the pg_trgm GIN indexes of
+ * db/migration serve.
+ * <ul>
+ *     <li>A term of {@value #MIN_SUBSTRING_LENGTH} or more chars matches anywhere in the value.</li>
+ *     <li>A shorter term matches only at the start of the value. A one- or two-char substring yields no trigram the
+ *     index can seek on, while a prefix still yields the padded word-start trigrams.</li>
+ * </ul>
+ * {@code %}, {@code _} and {@code \} in terms are matched literally. Backslash is PostgreSQL's default LIKE
+ * escape.
+ */
+public final class LikePatterns {
+    private LikePatterns() {}
+
+    public static final int MIN_SUBSTRING_LENGTH = 3;
+
+    public static String contains(String term) {
+        String t = term.trim();
+        String escaped = t.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return t.codePointCount(0, t.length()) >= MIN_SUBSTRING_LENGTH ? "%" + escaped + "%" : escaped + "%";
+    }
+}
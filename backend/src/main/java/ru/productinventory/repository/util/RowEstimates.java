@@ -0,0 +1,37 @@
+package ru.productinventory.repository.util;
+
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Row counts as PostgreSQL's statistics see them, for totals that need not be exact. */
+public final class RowEstimates {
+    private RowEstimates() {}
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    /** {@code pg_class.reltuples} of {@code table}; -1 when the table has never been analyzed. */
+    public static long table(Session s, String table) {
+        Number n = s.createNativeQuery(
+                        "select reltuples::bigint from pg_class where oid = to_regclass(:t)", Long.class)
+                .setParameter("t", table)
+                .uniqueResult();
+        return n == null ? -1 : n.longValue();
+    }
+
+    /** Planner row estimate of the native {@code select}, from {@code EXPLAIN} without running it. */
+    public static long query(Session s, String select, Map<String, Object> params) {
+        var q = s.createNativeQuery("explain (format json) " + select, String.class);
+        params.forEach((k, v) -> {
+            if (v instanceof Collection<?> c) q.setParameterList(k, c);
+            else q.setParameter(k, v);
+        });
+        String plan = q.uniqueResult();
+        Matcher m = PLAN_ROWS.matcher(plan);
+        if (!m.find()) throw new IllegalStateException("No row estimate in plan");
+        return Long.parseLong(m.group(1));
+    }
+}
@@ -1,15 +1,29 @@
 package ru.productinventory.repository.util;
 
+import org.hibernate.query.Query;
+
 import java.util.*;
 
 public class SortSupport {
 
-    public record Rule(String orderByExpr, String joinClause) {
-        public static Rule column(String qualifiedColumn) {
-            return new Rule(qualifiedColumn, null);
+    /** Select item counting all filtered rows in the page query itself; goes last, after the id. */
+    public static final String WINDOW_COUNT = ", count(*) over ()";
+
+    /**
+     * A whitelisted sort key. {@code type} is the Java type the expression selects, so keyset cursors can carry its
+     * value; {@code nullable} keys get the extra {@code is null} branches PostgreSQL's default null ordering needs.
+     */
+    public record Rule(String orderByExpr, String joinClause, Class<?> type, boolean nullable) {
+        public static Rule column(String qualifiedColumn, Class<?> type) {
+            return new Rule(qualifiedColumn, null, type, false);
+        }
+
+        public static Rule nullableColumn(String qualifiedColumn, Class<?> type) {
+            return new Rule(qualifiedColumn, null, type, true);
         }
     }
 
+    /** {@code whitelist} must contain an {@code id} rule; it breaks ties so every order is total. */
     public static Built build(Map<String, Rule> whitelist, String sortKey, String dir, String defaultKey) {
         String key = (sortKey == null || sortKey.isBlank()) ? defaultKey : sortKey;
         Rule r = whitelist.get(key);
@@ -17,12 +31,86 @@ public class SortSupport {
             throw new IllegalArgumentException("Invalid sort field: " + key);
         }
         String direction = "desc".equalsIgnoreCase(dir) ? "desc" : "asc";
+        String idExpr = whitelist.get("id").orderByExpr();
         String orderBy = r.orderByExpr() + " " + direction;
+        if (!r.orderByExpr().equals(idExpr)) orderBy += ", " + idExpr + " " + direction;
         Set<String> joins = new LinkedHashSet<>();
         if (r.joinClause() != null && !r.joinClause().isBlank()) joins.add(r.joinClause());
-        return new Built(orderBy, joins);
+        return new Built(orderBy, joins, key, direction, r, idExpr);
     }
 
-    public record Built(String orderBy, Set<String> joins) {
+    public record Built(String orderBy, Set<String> joins, String key, String direction, Rule rule, String idExpr) {
+
+        private boolean byId() {
+            return rule.orderByExpr().equals(idExpr);
+        }
+
+        /** Select expression whose value, per row, goes into the next cursor. */
+        public String keyExpr() {
+            return rule.orderByExpr();
+        }
+
+        public KeysetCursor decode(String token) {
+            return KeysetCursor.decode(token, key, direction, rule.type());
+        }
+
+        /**
+         * Condition for the rows strictly after {@code c} in this order, using {@code :ksValue} and {@code :ksId}.
+         * Nulls sort last ascending and first descending, as in PostgreSQL.
+         */
+        public String after(KeysetCursor c) {
+            String k = rule.orderByExpr();
+            String cmp = "asc".equals(direction) ? ">" : "<";
+            if (byId()) return idExpr + " " + cmp + " :ksId";
+            if (c.value() == null) {
+                String tail = "(" + k + " is null and " + idExpr + " " + cmp + " :ksId)";
+                return "asc".equals(direction) ? tail : "(" + tail + " or " + k + " is not null)";
+            }
+            // the leading bound is what an index on (key, id) seeks to; a row value would lose the key's type for
+            // the parameter, which breaks enum columns
+            String seek = "(" + k + " " + cmp + "= :ksValue and (" + k + " " + cmp + " :ksValue or "
+                    + idExpr + " " + cmp + " :ksId))";
+            return rule.nullable() && "asc".equals(direction) ? "(" + seek + " or " + k + " is null)" : seek;
+        }
+
+        public void bind(Query<?> q, KeysetCursor c) {
+            q.setParameter("ksId", c.id());
+            if (!byId() && c.value() != null) q.setParameter("ksValue", c.value());
+        }
+
+        /**
+         * Turns {@code select entity, keyExpr, id} rows fetched with {@code limit + 1} into a slice; the extra row
+         * only signals that a next page exists.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Slice<T> slice(List<Object[]> rows, int limit) {
+            boolean hasNext = rows.size() > limit;
+            List<Object[]> page = hasNext ? rows.subList(0, limit) : rows;
+            List<T> items = new ArrayList<>(page.size());
+            for (Object[] r : page) items.add((T) r[0]);
+            String next = null;
+            if (hasNext) {
+                Object[] last = page.get(page.size() - 1);
+                next = new KeysetCursor(key, direction, last[1], ((Number) last[2]).longValue()).encode();
+            }
+            return new Slice<>(items, hasNext, next, null);
+        }
+
+        /**
+         * {@link #slice} for rows ending in {@link #WINDOW_COUNT}. An empty page past the first says nothing about
+         * the total, which then stays null.
+         */
+        public <T> Slice<T> sliceWithTotal(List<Object[]> rows, int limit, boolean firstPage) {
+            Slice<T> s = slice(rows, limit);
+            Long total = rows.isEmpty() ? (firstPage ? 0L : null) : (Long) rows.get(0)[3];
+            return new Slice<>(s.items(), s.hasNext(), s.nextCursor(), total);
+        }
+    }
+
+    /** {@code total} is the filtered row count when the page query computed it, else null. */
+    public record Slice<T>(List<T> items, boolean hasNext, String nextCursor, Long total) {
+        public static <T> Slice<T> empty() {
+            return new Slice<>(List.of(), false, null, 0L);
+        }
     }
 }
@@ -0,0 +1,69 @@
+package ru.productinventory.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.productinventory.dto.analytics.ManufacturerStatsDTO;
+import ru.productinventory.dto.analytics.OwnerDistributionDTO;
+import ru.productinventory.dto.analytics.UnitStatsDTO;
+import ru.productinventory.repository.ProductStatsRepository;
+
+import java.util.List;
+
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
+
+/** Catalog aggregates read from the product summary tables, which {@link ProductStats} keeps current. */
+@Service
+@RequiredArgsConstructor
+public class AnalyticsService {
+    private static final int MAX_LIMIT = 1000;
+
+    private final ProductStatsRepository repo;
+
+    @Transactional(readOnly = true)
+    public List<ManufacturerStatsDTO> manufacturers(int limit) {
+        return repo.topManufacturers(clamp(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UnitStatsDTO> units() {
+        return repo.units();
+    }
+
+    @Transactional(readOnly = true)
+    public OwnerDistributionDTO owners(int limit) {
+        return new OwnerDistributionDTO(repo.countAll(), repo.countWithoutOwner(), repo.topOwners(clamp(limit)));
+    }
+
+    /** Stores a writing transaction's delta in the outbox, as part of that transaction. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long enqueue(ProductStatsRepository.Delta delta) {
+        return repo.enqueue(delta);
+    }
+
+    /**
+     * Applies a committed transaction's delta and deletes its outbox entry in a transaction of their own; an entry
+     * the drain has applied already is skipped. Read committed, because the summary rows are shared by every writer:
+     * concurrent applies wait for each other's row locks instead of failing to serialize.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = READ_COMMITTED)
+    public void applyQueued(long outboxId, ProductStatsRepository.Delta delta) {
+        if (repo.dequeue(outboxId)) repo.apply(delta);
+    }
+
+    /**
+     * Applies up to {@code limit} outbox entries left behind, oldest first, as one delta; returns how many there
+     * were.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = READ_COMMITTED)
+    public int drainQueued(int limit) {
+        var drained = repo.dequeueOldest(limit);
+        repo.apply(drained.delta());
+        return drained.entries();
+    }
+
+    private static int clamp(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+}
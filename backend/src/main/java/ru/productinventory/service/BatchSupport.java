@@ -0,0 +1,152 @@
+package ru.productinventory.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchUpdateDTO;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.ws.ChangePublisher;
+import ru.productinventory.ws.IdRanges;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Checks and the change event shared by the {@code batch} operations of the entity services. Each check adds a
+ * {@link ValidationError} per failing item instead of throwing, so one response reports every bad item.
+ */
+@Component
+public class BatchSupport {
+    private final ChangePublisher changes;
+    private final int maxItems;
+
+    public BatchSupport(ChangePublisher changes, @Value("${batch.max-items:1000}") int maxItems) {
+        this.changes = changes;
+        this.maxItems = maxItems;
+    }
+
+    public void checkSize(BatchRequestDTO<?, ?> req) {
+        if (req.size() > maxItems)
+            throw new IllegalArgumentException(
+                    "Batch has " + req.size() + " items; at most " + maxItems + " are allowed");
+    }
+
+    /**
+     * Maps every item with {@code prepare}, which validates by throwing {@link IllegalArgumentException}. Failed
+     * items leave null in the result.
+     */
+    public <T, E> List<E> prepare(List<T> items, String path, Function<T, E> prepare, List<ValidationError> errors) {
+        List<E> out = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            E e = null;
+            if (item == null) {
+                errors.add(new ValidationError(i, path, "item required"));
+            } else {
+                try {
+                    e = prepare.apply(item);
+                } catch (IllegalArgumentException ex) {
+                    errors.add(new ValidationError(i, path, ex.getMessage()));
+                }
+            }
+            out.add(e);
+        }
+        return out;
+    }
+
+    /** {@link #prepare} for the items of the updates. */
+    public <T, ID, E> List<E> prepareUpdates(List<BatchUpdateDTO<T, ID>> updates, Function<T, E> prepare,
+                                             List<ValidationError> errors) {
+        return prepare(updates.stream().map(u -> u == null ? null : u.getItem()).toList(), "updates", prepare, errors);
+    }
+
+    /**
+     * Loads the rows addressed by the updates and deletes with one {@code multiLoad} call, which returns null for
+     * ids that do not exist. Missing, repeated and unknown ids are reported; the map holds the rows that were found.
+     */
+    public <ID, E> Map<ID, E> load(BatchRequestDTO<?, ID> req, Function<List<ID>, List<E>> multiLoad,
+                                   String notFound, List<ValidationError> errors) {
+        Set<ID> seen = new HashSet<>();
+        List<ID> ids = new ArrayList<>();
+        for (int i = 0; i < req.getUpdates().size(); i++) {
+            var u = req.getUpdates().get(i);
+            checkId(u == null ? null : u.getId(), i, "updates", seen, ids, errors);
+        }
+        for (int i = 0; i < req.getDeletes().size(); i++) {
+            checkId(req.getDeletes().get(i), i, "deletes", seen, ids, errors);
+        }
+
+        Map<ID, E> rows = new HashMap<>();
+        if (ids.isEmpty()) return rows;
+        List<E> loaded = multiLoad.apply(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            if (loaded.get(i) != null) rows.put(ids.get(i), loaded.get(i));
+        }
+        for (int i = 0; i < req.getUpdates().size(); i++) {
+            var u = req.getUpdates().get(i);
+            if (u != null && u.getId() != null && !rows.containsKey(u.getId()))
+                errors.add(new ValidationError(i, "updates", notFound));
+        }
+        for (int i = 0; i < req.getDeletes().size(); i++) {
+            ID id = req.getDeletes().get(i);
+            if (id != null && !rows.containsKey(id)) errors.add(new ValidationError(i, "deletes", notFound));
+        }
+        return rows;
+    }
+
+    private static <ID> void checkId(ID id, int index, String path, Set<ID> seen, List<ID> ids,
+                                     List<ValidationError> errors) {
+        if (id == null) {
+            errors.add(new ValidationError(index, path, "id required"));
+        } else if (!seen.add(id)) {
+            errors.add(new ValidationError(index, path, "id " + id + " appears more than once in the batch"));
+        } else {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * The optimistic check of the single update, made up front: an update whose item carries a version other than
+     * its loaded row's is reported. Updates without a version, or without a loaded row, are skipped.
+     */
+    public <T, ID, E> void checkVersions(List<BatchUpdateDTO<T, ID>> updates, Map<ID, E> rows,
+                                         Function<T, Long> expected, ToLongFunction<E> current,
+                                         List<ValidationError> errors) {
+        for (int i = 0; i < updates.size(); i++) {
+            var u = updates.get(i);
+            if (u == null || u.getItem() == null || u.getId() == null) continue;
+            E row = rows.get(u.getId());
+            Long version = expected.apply(u.getItem());
+            if (row != null && version != null && version != current.applyAsLong(row))
+                errors.add(new ValidationError(i, "updates",
+                        "version " + version + " is stale, current version is " + current.applyAsLong(row)));
+        }
+    }
+
+    /**
+     * One change event for the whole batch, with the ids of every touched row. Its action is the batch's only kind of
+     * change, or {@code updated} when it mixes several.
+     */
+    public void broadcast(String entity, Collection<? extends Number> created, Collection<? extends Number> updated,
+                          Collection<? extends Number> deleted) {
+        int kinds = (created.isEmpty() ? 0 : 1) + (updated.isEmpty() ? 0 : 1) + (deleted.isEmpty() ? 0 : 1);
+        String action = kinds == 1 && !created.isEmpty() ? "created"
+                : kinds == 1 && !deleted.isEmpty() ? "deleted"
+                : "updated";
+        IdRanges ids = new IdRanges();
+        Stream.of(created, updated, deleted)
+                .flatMap(Collection::stream)
+                .mapToLong(Number::longValue)
+                .sorted()
+                .forEach(ids::add);
+        changes.broadcastBulk(entity, action, null, ids);
+    }
+}
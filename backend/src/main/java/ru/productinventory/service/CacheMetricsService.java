@@ -0,0 +1,30 @@
+package ru.productinventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.productinventory.dto.metrics.CacheRegionDTO;
+
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+@Service
+@RequiredArgsConstructor
+public class CacheMetricsService {
+    private final CacheManager cacheManager;
+
+    public List<CacheRegionDTO> regions() {
+        List<CacheRegionDTO> out = new ArrayList<>();
+        for (String name : StreamSupport.stream(cacheManager.getCacheNames().spliterator(), false).sorted().toList()) {
+            Cache<?, ?> c = cacheManager.getCache(name).unwrap(Cache.class);
+            CacheStats st = c.stats();
+            Long max = c.policy().eviction().map(e -> e.getMaximum()).orElse(null);
+            out.add(new CacheRegionDTO(name, c.estimatedSize(), max, st.hitCount(), st.missCount(), st.hitRate(),
+                    st.evictionCount()));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.productinventory.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import ru.productinventory.repository.ChangeVersionRepository;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Versions of the entity types, kept in the database by the {@code change_log} triggers (V11): a writing transaction
+ * moves the version of each table it writes, atomically with its changes. Read in the same transaction as the data,
+ * a version therefore never runs ahead of what was read, on the primary or a lagging replica, and every instance
+ * sees the same one. The log rows are folded into {@code change_version} every {@code change-log.fold-ms}, so
+ * reading a version stays an index lookup over a few rows.
+ */
+@Component
+public class ChangeVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeVersions.class);
+
+    /** Entity tag of data built from some entity types. */
+    public record Stamp(String etag) {
+    }
+
+    private final ChangeVersionRepository repo;
+    private final TaskScheduler scheduler;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @Value("${change-log.fold-ms:10000}")
+    private long foldMs;
+
+    public ChangeVersions(ChangeVersionRepository repo, @Qualifier("maintenanceScheduler") TaskScheduler scheduler) {
+        this.repo = repo;
+        this.scheduler = scheduler;
+    }
+
+    /** Call inside the transaction that reads the data, so the stamp matches what it saw. */
+    public Stamp stamp(String... entities) {
+        Map<String, Long> versions = repo.versions(Arrays.asList(entities));
+        StringBuilder tag = new StringBuilder("W/\"");
+        for (int i = 0; i < entities.length; i++) {
+            if (i > 0) tag.append('-');
+            tag.append(versions.getOrDefault(entities[i], 0L));
+        }
+        return new Stamp(tag.append('"').toString());
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        scheduler.scheduleWithFixedDelay(this::fold, Duration.ofMillis(foldMs));
+    }
+
+    void fold() {
+        try {
+            repo.fold();
+        } catch (RuntimeException e) {
+            log.warn("Could not fold the change log", e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import ru.productinventory.dto.imports.ImportResponse;
+import ru.productinventory.dto.imports.ProductImportDTO;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.model.ImportOperation;
+import ru.productinventory.util.JsonArrayReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Chunked import: every {@code import.chunk-size} items are committed in their own transaction together with a
+ * checkpoint on the {@link ImportOperation}. The source is spooled to {@code import.spool-dir} so a failed import
+ * can be resumed from the item after its last committed chunk. Each resume is a new attempt of the operation; a run
+ * whose attempt has been replaced can no longer checkpoint, complete or fail it.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChunkedImportService {
+
+    private final ProductImportService importService;
+    private final ImportHistoryService history;
+    private final ImportLeases leases;
+    private final ObjectMapper objectMapper;
+
+    @Value("${import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${import.spool-dir:${java.io.tmpdir}/product-imports}")
+    private String spoolDir;
+
+    public Path spool(InputStreamSource source) throws IOException {
+        Path file = newSpoolFile();
+        try (InputStream in = source.getInputStream()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    public Path spool(Iterable<ProductImportDTO> items) throws IOException {
+        Path file = newSpoolFile();
+        try (OutputStream out = Files.newOutputStream(file);
+             JsonGenerator g = objectMapper.getFactory().createGenerator(out)) {
+            g.writeStartArray();
+            for (ProductImportDTO dto : items) {
+                objectMapper.writeValue(g, dto);
+            }
+            g.writeEndArray();
+        }
+        return file;
+    }
+
+    public ImportResponse start(Path source) {
+        ImportOperation op = history.startChunked(LocalDateTime.now(), source.toString());
+        return runHeld(op);
+    }
+
+    /**
+     * Continues a failed import after its last checkpoint; {@code replacement}, if given, must keep the order of the
+     * original. The previous source file is deleted once the resume has taken the operation over.
+     */
+    public ImportResponse resume(Long id, Path replacement) {
+        String previousSource = history.find(id).getSourcePath();
+        ImportOperation op;
+        try {
+            op = history.reopenChunked(id, replacement == null ? null : replacement.toString());
+        } catch (RuntimeException e) {
+            if (replacement != null) deleteQuietly(replacement);
+            throw e;
+        }
+        if (replacement != null && previousSource != null && !previousSource.equals(op.getSourcePath()))
+            deleteQuietly(Path.of(previousSource));
+        if (op.getSourcePath() == null || !Files.isReadable(Path.of(op.getSourcePath()))) {
+            String msg = "Import source is no longer available, resume with a replacement file";
+            history.failRun(id, op.getAttempt(), msg);
+            throw new IllegalStateException(msg);
+        }
+        return runHeld(op);
+    }
+
+    /**
+     * Runs a queued chunked import that the caller has marked RUNNING and whose lease it holds; {@code decorator}
+     * wraps the item source, e.g. to track progress. On failure the import can be resumed.
+     */
+    public ImportResponse runQueued(Long id, UnaryOperator<Iterable<ProductImportDTO>> decorator) {
+        return run(history.find(id), decorator);
+    }
+
+    private ImportResponse runHeld(ImportOperation op) {
+        leases.hold(op.getId());
+        try {
+            return run(op, UnaryOperator.identity());
+        } finally {
+            leases.release(op.getId());
+        }
+    }
+
+    private ImportResponse run(ImportOperation op, UnaryOperator<Iterable<ProductImportDTO>> decorator) {
+        Path source = Path.of(op.getSourcePath());
+        int skip = op.getLastCommittedIndex() + 1;
+        int created = op.getCreatedCount();
+        int index = 0;
+        int chunkStart = skip;
+        int attempt = op.getAttempt();
+        List<ProductImportDTO> chunk = new ArrayList<>(chunkSize);
+
+        try (var items = JsonArrayReader.open(objectMapper, Files.newInputStream(source), ProductImportDTO.class)) {
+            for (ProductImportDTO dto : decorator.apply(items)) {
+                if (index++ < skip) continue;
+                chunk.add(dto);
+                if (chunk.size() == chunkSize) {
+                    created += importService.importCheckpointedChunk(op.getId(), attempt, chunk, chunkStart);
+                    chunkStart += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                created += importService.importCheckpointedChunk(op.getId(), attempt, chunk, chunkStart);
+            }
+        } catch (IOException | RuntimeException e) {
+            String msg = e instanceof UncheckedIOException u ? u.getCause().getMessage() : e.getMessage();
+            history.failRun(op.getId(), attempt, msg);
+
+            if (e instanceof ProductImportService.ItemFailure f) {
+                var r = ImportResponse.failed(created, List.of(new ValidationError(f.getIndex(), "items", msg)));
+                r.setImportId(op.getId());
+                return r;
+            }
+            if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) {
+                var r = ImportResponse.failed(created, List.of(new ValidationError(chunkStart, "items", msg)));
+                r.setImportId(op.getId());
+                return r;
+            }
+            if (e instanceof IOException io) throw new UncheckedIOException(io);
+            throw (RuntimeException) e;
+        }
+
+        history.completeRun(op.getId(), attempt);
+        deleteQuietly(source);
+
+        var r = ImportResponse.ok(created);
+        r.setImportId(op.getId());
+        return r;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // a leftover spool file only costs disk space
+        }
+    }
+
+    private Path newSpoolFile() throws IOException {
+        Path dir = Files.createDirectories(Path.of(spoolDir));
+        return Files.createTempFile(dir, "import-", ".json");
+    }
+}
@@ -8,14 +8,18 @@ import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.productinventory.dto.imports.ImportOperationDTO;
 import ru.productinventory.dto.paging.PageResponseDTO;
+import ru.productinventory.model.ImportMode;
 import ru.productinventory.model.ImportOperation;
 import ru.productinventory.model.ImportStatus;
 import ru.productinventory.repository.ImportOperationRepository;
 import ru.productinventory.ws.ChangePublisher;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
 import static org.springframework.transaction.annotation.Isolation.SERIALIZABLE;
 
 @Service
@@ -51,21 +55,24 @@ public class ImportHistoryService {
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW,isolation = SERIALIZABLE)
-    public void recordSuccess(LocalDateTime startedAt, int createdCount) {
+    public Long recordSuccess(LocalDateTime startedAt, int createdCount, ImportMode mode) {
         var op = ImportOperation.builder()
                 .status(ImportStatus.SUCCESS)
+                .mode(mode)
                 .createdCount(createdCount)
                 .startedAt(startedAt)
                 .finishedAt(LocalDateTime.now())
                 .build();
         repo.save(op);
         afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
+        return op.getId();
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW,isolation = SERIALIZABLE)
-    public void recordFailure(LocalDateTime startedAt) {
+    public void recordFailure(LocalDateTime startedAt, ImportMode mode) {
         var op = ImportOperation.builder()
                 .status(ImportStatus.FAILED)
+                .mode(mode)
                 .createdCount(null)
                 .startedAt(startedAt)
                 .finishedAt(LocalDateTime.now())
@@ -74,6 +81,154 @@ public class ImportHistoryService {
         afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
     }
 
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public ImportOperation startChunked(LocalDateTime startedAt, String sourcePath) {
+        var op = ImportOperation.builder()
+                .status(ImportStatus.RUNNING)
+                .mode(ImportMode.CHUNKED)
+                .createdCount(0)
+                .lastCommittedIndex(-1)
+                .sourcePath(sourcePath)
+                .startedAt(startedAt)
+                .attempt(0)
+                .build();
+        repo.save(op);
+        repo.renewLease(op.getId());
+        afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
+        return op;
+    }
+
+    /**
+     * Puts a failed chunked import back into RUNNING as a new attempt, optionally with a corrected source file.
+     * A RUNNING import is never taken over: its run may still be alive.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public ImportOperation reopenChunked(Long id, String replacementSourcePath) {
+        ImportOperation op = find(id);
+        if (op.getMode() != ImportMode.CHUNKED)
+            throw new IllegalStateException("Import operation " + id + " is not a chunked import");
+        if (op.getStatus() != ImportStatus.FAILED)
+            throw new IllegalStateException("Import operation " + id + " is " + op.getStatus()
+                    + "; only a failed import can be resumed");
+
+        if (replacementSourcePath != null) op.setSourcePath(replacementSourcePath);
+        op.setAttempt(op.getAttempt() + 1);
+        op.setStatus(ImportStatus.RUNNING);
+        op.setErrorMessage(null);
+        op.setFinishedAt(null);
+        repo.renewLease(id);
+        afterCommit(() -> changes.broadcast("imports", "updated", id));
+        return op;
+    }
+
+    /**
+     * Moves the checkpoint of a chunked import past items {@code fromIndex..lastIndex}. Joins the chunk's
+     * transaction, so the checkpoint commits or rolls back together with the chunk's rows. Fails unless
+     * {@code attempt} is still the operation's current, running attempt.
+     */
+    @Transactional(isolation = SERIALIZABLE)
+    public void checkpoint(Long id, int attempt, int fromIndex, int lastIndex, int createdCount) {
+        ImportOperation op = find(id);
+        if (!isCurrentRun(op, attempt) || op.getLastCommittedIndex() != fromIndex - 1)
+            throw new IllegalStateException("Import operation " + id + " was resumed concurrently");
+
+        op.setLastCommittedIndex(lastIndex);
+        op.setCreatedCount(op.getCreatedCount() + createdCount);
+    }
+
+    /** Queues an asynchronous import job; the operation id doubles as the job id. The job holds its lease. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public ImportOperation enqueue(ImportMode mode, String sourcePath) {
+        var op = ImportOperation.builder()
+                .status(ImportStatus.QUEUED)
+                .mode(mode)
+                .createdCount(0)
+                .lastCommittedIndex(mode == ImportMode.CHUNKED ? -1 : null)
+                .sourcePath(sourcePath)
+                .startedAt(LocalDateTime.now())
+                .attempt(0)
+                .build();
+        repo.save(op);
+        repo.renewLease(op.getId());
+        afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
+        return op;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public void markRunning(Long id) {
+        ImportOperation op = find(id);
+        op.setStatus(ImportStatus.RUNNING);
+        op.setStartedAt(LocalDateTime.now());
+        afterCommit(() -> changes.broadcast("imports", "updated", id));
+    }
+
+    /** Completes a queued or chunked operation; a null {@code createdCount} keeps the checkpointed count. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public void complete(Long id, Integer createdCount) {
+        ImportOperation op = find(id);
+        if (createdCount != null) op.setCreatedCount(createdCount);
+        complete(op);
+    }
+
+    /** Completes the run {@code attempt} of a chunked import; fails if a resume has replaced that run. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public void completeRun(Long id, int attempt) {
+        ImportOperation op = find(id);
+        if (!isCurrentRun(op, attempt))
+            throw new IllegalStateException("Import operation " + id + " was resumed concurrently");
+        complete(op);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public void fail(Long id, String errorMessage) {
+        fail(find(id), errorMessage);
+    }
+
+    /** Fails the run {@code attempt} of a chunked import; does nothing if a resume has replaced that run. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = SERIALIZABLE)
+    public void failRun(Long id, int attempt, String errorMessage) {
+        ImportOperation op = find(id);
+        if (isCurrentRun(op, attempt)) fail(op, errorMessage);
+    }
+
+    /** Renews the leases of the operations this instance is working on; see {@link ImportLeases}. */
+    @Transactional(isolation = READ_COMMITTED)
+    public void renewLeases(Collection<Long> ids) {
+        if (!ids.isEmpty()) repo.renewLeases(ids);
+    }
+
+    /**
+     * Fails the queued and running operations whose lease has expired: the instance working on them stopped.
+     * Returns the spooled sources that are no longer needed, those of operations that are not chunked.
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public List<Path> failOrphaned(long leaseMs) {
+        var failed = repo.failExpired(leaseMs, "Interrupted: the instance running the import stopped",
+                LocalDateTime.now());
+        if (!failed.isEmpty()) afterCommit(() -> changes.broadcast("imports", "updated", null));
+        return failed.stream()
+                .filter(r -> r[2] != null && !ImportMode.CHUNKED.name().equals(r[1]))
+                .map(r -> Path.of((String) r[2]))
+                .toList();
+    }
+
+    private static boolean isCurrentRun(ImportOperation op, int attempt) {
+        return op.getStatus() == ImportStatus.RUNNING && op.getAttempt() == attempt;
+    }
+
+    private void complete(ImportOperation op) {
+        op.setStatus(ImportStatus.SUCCESS);
+        op.setFinishedAt(LocalDateTime.now());
+        afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
+    }
+
+    private void fail(ImportOperation op, String errorMessage) {
+        op.setStatus(ImportStatus.FAILED);
+        op.setErrorMessage(errorMessage);
+        op.setFinishedAt(LocalDateTime.now());
+        afterCommit(() -> changes.broadcast("imports", "updated", op.getId()));
+    }
+
     private void afterCommit(Runnable r) {
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
             @Override
@@ -0,0 +1,147 @@
+package ru.productinventory.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.productinventory.dto.imports.ImportJobDTO;
+import ru.productinventory.dto.imports.ImportResponse;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.model.ImportStatus;
+import ru.productinventory.ws.ChangePublisher;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory state of asynchronous import jobs, so status polling and progress events need no database access.
+ * Finished jobs are kept for the last {@value #RETAINED_FINISHED} completions; older ones are served from
+ * {@code import_operation}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportJobRegistry {
+
+    private static final int RETAINED_FINISHED = 100;
+
+    private final ChangePublisher changes;
+
+    @Value("${import.jobs.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    private final Queue<Long> finished = new ConcurrentLinkedQueue<>();
+
+    public Job register(Long id, ImportMode mode) {
+        Job job = new Job(id, mode);
+        jobs.put(id, job);
+        return job;
+    }
+
+    public Job find(Long id) {
+        return jobs.get(id);
+    }
+
+    private void retire(Long id) {
+        finished.add(id);
+        while (finished.size() > RETAINED_FINISHED) {
+            Long old = finished.poll();
+            if (old != null) jobs.remove(old);
+        }
+    }
+
+    public final class Job {
+        @Getter
+        private final Long id;
+        @Getter
+        private final ImportMode mode;
+
+        private volatile ImportStatus status = ImportStatus.QUEUED;
+        private volatile String phase;
+        private volatile long phaseStartedNanos;
+        private volatile long lastEventNanos;
+        private volatile long finishedNanos;
+        private volatile ImportResponse result;
+        private volatile String errorMessage;
+        private final AtomicLong processed = new AtomicLong();
+
+        private Job(Long id, ImportMode mode) {
+            this.id = id;
+            this.mode = mode;
+        }
+
+        public void running() {
+            status = ImportStatus.RUNNING;
+        }
+
+        /** Wraps {@code items} so every item pulled from it counts as processed in {@code phase}. */
+        public <T> Iterable<T> track(Iterable<T> items, String phase) {
+            this.phase = phase;
+            processed.set(0);
+            phaseStartedNanos = lastEventNanos = System.nanoTime();
+            return () -> {
+                Iterator<T> it = items.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        T v = it.next();
+                        processed.incrementAndGet();
+                        long now = System.nanoTime();
+                        if (now - lastEventNanos >= TimeUnit.MILLISECONDS.toNanos(progressIntervalMs)) {
+                            lastEventNanos = now;
+                            changes.importProgress(id, phase, processed.get(), rowsPerSecond());
+                        }
+                        return v;
+                    }
+                };
+            };
+        }
+
+        public void finish(ImportResponse result) {
+            this.result = result;
+            this.finishedNanos = System.nanoTime();
+            this.status = result.getErrors().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.FAILED;
+            if (!result.getErrors().isEmpty()) this.errorMessage = result.getErrors().get(0).getMessage();
+            retire(id);
+        }
+
+        public void fail(String message) {
+            this.errorMessage = message;
+            this.finishedNanos = System.nanoTime();
+            this.status = ImportStatus.FAILED;
+            retire(id);
+        }
+
+        private double rowsPerSecond() {
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            double seconds = (end - phaseStartedNanos) / 1e9;
+            return seconds <= 0 ? 0 : processed.get() / seconds;
+        }
+
+        public ImportJobDTO toDTO() {
+            ImportResponse r = result;
+            return new ImportJobDTO(
+                    id,
+                    status.name(),
+                    mode.name(),
+                    phase,
+                    processed.get(),
+                    rowsPerSecond(),
+                    r == null ? null : r.getCreatedCount(),
+                    errorMessage,
+                    r == null ? List.of() : r.getErrors()
+            );
+        }
+    }
+}
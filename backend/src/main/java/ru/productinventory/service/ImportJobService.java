@@ -0,0 +1,139 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import ru.productinventory.dto.imports.ImportJobDTO;
+import ru.productinventory.dto.imports.ImportResponse;
+import ru.productinventory.dto.imports.ProductImportDTO;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.model.ImportOperation;
+import ru.productinventory.util.JsonArrayReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Asynchronous imports: the upload is spooled and queued as an {@link ImportOperation}, then validated and imported
+ * on the {@code importExecutor} pool. Progress is published as {@code imports}/{@code progress} change events.
+ */
+@Service
+public class ImportJobService {
+
+    private final ProductImportService importService;
+    private final ChunkedImportService chunkedImport;
+    private final ProductImportValidator importValidator;
+    private final ImportHistoryService history;
+    private final ImportJobRegistry registry;
+    private final ImportLeases leases;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final RetryTemplate serializationRetry;
+
+    public ImportJobService(ProductImportService importService, ChunkedImportService chunkedImport,
+                            ProductImportValidator importValidator, ImportHistoryService history,
+                            ImportJobRegistry registry, ImportLeases leases, ObjectMapper objectMapper,
+                            @Qualifier("importExecutor") TaskExecutor executor,
+                            @Qualifier("serializationRetryTemplate") RetryTemplate serializationRetry) {
+        this.importService = importService;
+        this.chunkedImport = chunkedImport;
+        this.importValidator = importValidator;
+        this.history = history;
+        this.registry = registry;
+        this.leases = leases;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.serializationRetry = serializationRetry;
+    }
+
+    /**
+     * Queues an import of {@code source} and returns the job id.
+     *
+     * @throws TaskRejectedException when the job queue is full; the operation is then recorded as failed
+     */
+    public Long submit(InputStreamSource source, ImportMode mode) throws IOException {
+        Path spooled = chunkedImport.spool(source);
+        ImportOperation op = history.enqueue(mode, spooled.toString());
+        var job = registry.register(op.getId(), mode);
+        leases.hold(op.getId());
+        try {
+            executor.execute(() -> run(job, spooled));
+        } catch (TaskRejectedException e) {
+            String msg = "Import queue is full";
+            leases.release(op.getId());
+            history.fail(op.getId(), msg);
+            job.fail(msg);
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        return op.getId();
+    }
+
+    public ImportJobDTO status(Long id) {
+        var job = registry.find(id);
+        return job != null ? job.toDTO() : ImportJobDTO.from(history.find(id));
+    }
+
+    private void run(ImportJobRegistry.Job job, Path source) {
+        Long id = job.getId();
+        boolean keepSource = false;
+        try {
+            history.markRunning(id);
+            job.running();
+
+            var errors = importValidator.validate(new FileSystemResource(source),
+                    items -> job.track(items, "validating"));
+            if (!errors.isEmpty()) {
+                history.fail(id, errors.size() + " validation error(s), first: "
+                        + errors.get(0).getFieldPath() + " " + errors.get(0).getMessage());
+                job.finish(ImportResponse.failed(0, errors));
+                return;
+            }
+
+            ImportResponse result;
+            if (job.getMode() == ImportMode.CHUNKED) {
+                // a queued chunked job is resumed from before its first item; on failure it stays resumable
+                result = chunkedImport.runQueued(id, items -> job.track(items, "importing"));
+                keepSource = !result.getErrors().isEmpty();
+            } else {
+                // the spooled file is read again by each attempt of a transaction aborted by a serialization failure
+                result = serializationRetry.execute(context -> {
+                    context.setAttribute(RetryContext.NAME, "ImportJobService.import");
+                    try (var items = JsonArrayReader.open(objectMapper, Files.newInputStream(source), ProductImportDTO.class)) {
+                        var tracked = job.track(items, "importing");
+                        return job.getMode() == ImportMode.COPY
+                                ? importService.importAllBulkLoad(tracked, id)
+                                : importService.importAllTransactional(tracked, id);
+                    }
+                });
+            }
+            job.finish(result);
+        } catch (Throwable e) {
+            // Errors too: the job is retired and the operation failed before the Error propagates
+            keepSource = job.getMode() == ImportMode.CHUNKED;
+            String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            try {
+                history.fail(id, msg);
+            } finally {
+                job.fail(msg);
+            }
+            if (e instanceof Error err) throw err;
+        } finally {
+            leases.release(id);
+            if (!keepSource) {
+                try {
+                    Files.deleteIfExists(source);
+                } catch (IOException ignored) {
+                    // a leftover spool file only costs disk space
+                }
+            }
+        }
+    }
+}
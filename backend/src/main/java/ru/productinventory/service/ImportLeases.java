@@ -0,0 +1,83 @@
+package ru.productinventory.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Leases of the imports this instance is working on (V10). Held from when an import is queued or started until it
+ * finishes, and renewed every third of {@code import.lease-ms}. A sweep at startup and then every lease period
+ * fails the queued and running imports whose lease has lapsed, i.e. whose instance stopped; without it they would
+ * stay QUEUED or RUNNING forever, and a chunked one could not be resumed.
+ */
+@Component
+public class ImportLeases {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportLeases.class);
+
+    private final ImportHistoryService history;
+    private final TaskScheduler scheduler;
+    private final Set<Long> held = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @Value("${import.lease-ms:60000}")
+    private long leaseMs;
+
+    public ImportLeases(ImportHistoryService history, @Qualifier("importLeaseScheduler") TaskScheduler scheduler) {
+        this.history = history;
+        this.scheduler = scheduler;
+    }
+
+    /** Keeps renewing the lease of operation {@code id}, which the operation took when it was queued or started. */
+    public void hold(Long id) {
+        held.add(id);
+    }
+
+    public void release(Long id) {
+        held.remove(id);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        scheduler.scheduleAtFixedRate(this::renew, Duration.ofMillis(Math.max(leaseMs / 3, 1)));
+        scheduler.scheduleWithFixedDelay(this::sweep, Duration.ofMillis(leaseMs));
+    }
+
+    void renew() {
+        if (held.isEmpty()) return;
+        try {
+            history.renewLeases(List.copyOf(held));
+        } catch (RuntimeException e) {
+            log.warn("Could not renew import leases", e);
+        }
+    }
+
+    void sweep() {
+        try {
+            for (Path source : history.failOrphaned(leaseMs)) {
+                try {
+                    Files.deleteIfExists(source);
+                } catch (IOException ignored) {
+                    // a leftover spool file only costs disk space
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not fail orphaned imports", e);
+        }
+    }
+}
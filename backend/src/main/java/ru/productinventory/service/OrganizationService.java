@@ -1,12 +1,18 @@
 package ru.productinventory.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
+import ru.productinventory.dto.imports.ValidationError;
 import ru.productinventory.dto.organization.OrganizationCreateDTO;
 import ru.productinventory.dto.organization.OrganizationViewDTO;
 
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
+import ru.productinventory.mapper.MergePatch;
 import ru.productinventory.mapper.OrganizationMapper;
 import ru.productinventory.model.Address;
 import ru.productinventory.model.Location;
@@ -14,7 +20,12 @@ import ru.productinventory.model.Organization;
 import ru.productinventory.repository.OrganizationRepository;
 import ru.productinventory.ws.ChangePublisher;
 
-import static org.springframework.transaction.annotation.Isolation.SERIALIZABLE;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
 
 
 @Service
@@ -23,6 +34,9 @@ public class OrganizationService {
     private final OrganizationRepository repo;
     private final OrganizationMapper mapper;
     private final ChangePublisher changes;
+    private final PageTotals totals;
+    private final MergePatch patches;
+    private final BatchSupport batches;
 
     @Transactional(readOnly = true)
     public OrganizationViewDTO get(Integer id) {
@@ -35,6 +49,8 @@ public class OrganizationService {
             int size,
             String sort,
             String dir,
+            String after,
+            CountMode countMode,
             String name,
             String fullName,
             String officialTownName,
@@ -42,16 +58,22 @@ public class OrganizationService {
     ) {
         int offset = Math.max(page, 0) * Math.max(size, 1);
 
-        var rows  = repo.findFiltered(name, fullName, officialTownName, postalTownName, offset, size, sort, dir);
-        long total = repo.countFiltered(name, fullName, officialTownName, postalTownName);
-
-        var items = rows.stream().map(mapper::toView).toList();
-        return PageResponseDTO.of(items, page, size, total, sort, dir);
+        var slice = repo.findFiltered(name, fullName, officialTownName, postalTownName, after, offset, size, sort, dir,
+                countMode == CountMode.WINDOW);
+        var total = totals.total("organization", countMode,
+                Arrays.asList(name, fullName, officialTownName, postalTownName), slice.total(),
+                () -> repo.countFiltered(name, fullName, officialTownName, postalTownName),
+                () -> repo.estimateFiltered(name, fullName, officialTownName, postalTownName),
+                repo::estimateTotal);
+
+        var items = slice.items().stream().map(mapper::toView).toList();
+        return PageResponseDTO.of(items, page, size, total.value(), total.mode(), sort, dir, slice.nextCursor(),
+                after != null && !after.isBlank());
     }
 
 
 
-    @Transactional(isolation = SERIALIZABLE)
+    @Transactional(isolation = READ_COMMITTED)
     public Integer create(OrganizationCreateDTO dto) {
         Organization o = mapper.toEntity(dto);
         validate(o);
@@ -60,22 +82,80 @@ public class OrganizationService {
         return id;
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /** {@code dto.version}, when given, must still be current; a concurrent update is caught by the version check. */
+    @Transactional(isolation = READ_COMMITTED)
     public void update(Integer id, OrganizationCreateDTO dto) {
         Organization o = mapper.toEntity(dto);
         o.setId(id);
         validate(o);
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Organization not found"));
+        o.setVersion(dto.getVersion() != null ? dto.getVersion() : current.getVersion());
         repo.merge(o);
         changes.broadcast("organization", "updated", id);
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /**
+     * Applies a JSON merge patch to the current row and saves the result as {@link #update} would, with the same
+     * validation; a {@code version} in the patch is checked the same way. Only the columns whose values changed are
+     * written (dynamic-update).
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public void patch(Integer id, JsonNode patch) {
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Organization not found"));
+        update(id, patches.apply(mapper.toCreateDTO(current), patch));
+    }
+
+    @Transactional(isolation = READ_COMMITTED)
     public void delete(Integer id) {
         var e = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Organization not found"));
         repo.delete(e);
         changes.broadcast("organization", "deleted", id);
     }
 
+    /**
+     * Applies a batch in one transaction, with the same checks as {@link #create}, {@link #update} and
+     * {@link #delete}. All items are checked before anything is written, the addressed rows loaded with one query;
+     * any failing item fails the batch. Rows are then written in JDBC batches, with one change event for the batch.
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public BatchResponse<Integer> batch(BatchRequestDTO<OrganizationCreateDTO, Integer> req) {
+        batches.checkSize(req);
+        List<ValidationError> errors = new ArrayList<>();
+        List<Organization> creates = batches.prepare(req.getCreates(), "creates", this::prepare, errors);
+        List<Organization> updates = batches.prepareUpdates(req.getUpdates(), this::prepare, errors);
+        Map<Integer, Organization> current = batches.load(req, repo::findAllById, "Organization not found", errors);
+        batches.checkVersions(req.getUpdates(), current, OrganizationCreateDTO::getVersion,
+                Organization::getVersion, errors);
+        if (!errors.isEmpty()) return BatchResponse.failed(errors);
+
+        List<Integer> deleted = new ArrayList<>();
+        for (Integer id : req.getDeletes()) {
+            repo.delete(current.get(id));
+            deleted.add(id);
+        }
+        List<Integer> updated = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            Integer id = req.getUpdates().get(i).getId();
+            Organization o = updates.get(i);
+            o.setId(id);
+            o.setVersion(current.get(id).getVersion());
+            repo.merge(o);
+            updated.add(id);
+        }
+        List<Integer> created = new ArrayList<>();
+        for (Organization o : creates) {
+            created.add(repo.save(o));
+        }
+        batches.broadcast("organization", created, updated, deleted);
+        return BatchResponse.ok(created, updated, deleted);
+    }
+
+    private Organization prepare(OrganizationCreateDTO dto) {
+        Organization o = mapper.toEntity(dto);
+        validate(o);
+        return o;
+    }
+
     private void validate(Organization o) {
         if (o.getName() == null || o.getName().trim().isEmpty())
             throw new IllegalArgumentException("name required");
@@ -0,0 +1,127 @@
+package ru.productinventory.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.dto.paging.CountMode;
+import ru.productinventory.ws.BulkChangeEvent;
+import ru.productinventory.ws.ChangeEvent;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@code totalElements} of the list endpoints per {@link CountMode}. Cached totals are kept per listing and
+ * normalized filter. A listing's cache is dropped on every change event for an entity it depends on, and again when
+ * the changing transaction completes, so a count taken before the commit does not outlive it.
+ */
+@Component
+public class PageTotals {
+
+    /** Entities whose changes can move each listing's totals; products filter on organization and person names. */
+    private static final Map<String, Set<String>> DEPENDS_ON = Map.of(
+            "product", Set.of("product", "organization", "person"),
+            "organization", Set.of("organization"),
+            "person", Set.of("person")
+    );
+
+    public record Total(Long value, CountMode mode) {
+    }
+
+    private record Entry(long value, long expiresAtNanos) {
+    }
+
+    private final Map<String, Map<String, Entry>> caches = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Value("${paging.count.estimate-threshold:100000}")
+    private long estimateThreshold;
+
+    @Value("${paging.count.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    @Value("${paging.count.cache-size:1000}")
+    private int cacheSize;
+
+    /**
+     * @param listing   listing entity, a key of {@link #DEPENDS_ON}
+     * @param filters   the listing's filter values; blank and null are the same filter
+     * @param window    total the page query computed for {@link CountMode#WINDOW}, null if it could not
+     * @param exact     filtered {@code count(*)}
+     * @param estimate  planner estimate of the filtered query
+     * @param tableRows estimated size of the listing's table, -1 if unknown
+     */
+    public Total total(String listing, CountMode mode, List<String> filters, Long window,
+                       LongSupplier exact, LongSupplier estimate, LongSupplier tableRows) {
+        return switch (mode) {
+            case NONE -> new Total(null, CountMode.NONE);
+            case EXACT -> new Total(exact.getAsLong(), CountMode.EXACT);
+            case WINDOW -> window != null
+                    ? new Total(window, CountMode.WINDOW)
+                    : new Total(exact.getAsLong(), CountMode.EXACT);
+            case CACHED -> new Total(cached(listing, filters, exact), CountMode.CACHED);
+            case ESTIMATED -> tableRows.getAsLong() < estimateThreshold
+                    ? new Total(exact.getAsLong(), CountMode.EXACT)
+                    : new Total(estimate.getAsLong(), CountMode.ESTIMATED);
+        };
+    }
+
+    private long cached(String listing, List<String> filters, LongSupplier exact) {
+        String key = filters.stream()
+                .map(f -> f == null ? "" : f.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining("\u0000"));
+        Map<String, Entry> cache = caches.computeIfAbsent(listing, k -> new ConcurrentHashMap<>());
+        long now = System.nanoTime();
+        Entry e = cache.get(key);
+        if (e != null && now - e.expiresAtNanos() < 0) return e.value();
+
+        AtomicLong generation = generations.computeIfAbsent(listing, k -> new AtomicLong());
+        long before = generation.get();
+        long value = exact.getAsLong();
+        if (generation.get() == before) {
+            if (cache.size() >= cacheSize) cache.clear();
+            cache.put(key, new Entry(value, now + TimeUnit.MILLISECONDS.toNanos(cacheTtlMs)));
+        }
+        return value;
+    }
+
+    @EventListener
+    public void onChange(ChangeEvent e) {
+        invalidate(e.getEntity());
+    }
+
+    @EventListener
+    public void onBulkChange(BulkChangeEvent e) {
+        invalidate(e.getEntity());
+    }
+
+    private void invalidate(String entity) {
+        dropDependents(entity);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    dropDependents(entity);
+                }
+            });
+        }
+    }
+
+    private void dropDependents(String entity) {
+        DEPENDS_ON.forEach((listing, deps) -> {
+            if (!deps.contains(entity)) return;
+            generations.computeIfAbsent(listing, k -> new AtomicLong()).incrementAndGet();
+            Map<String, Entry> cache = caches.get(listing);
+            if (cache != null) cache.clear();
+        });
+    }
+}
@@ -1,17 +1,34 @@
 package ru.productinventory.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.productinventory.config.RetryConfig;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
 import ru.productinventory.dto.person.PersonCreateDTO;
 import ru.productinventory.dto.person.PersonViewDTO;
+import ru.productinventory.mapper.MergePatch;
 import ru.productinventory.mapper.PersonMapper;
 import ru.productinventory.model.Location;
 import ru.productinventory.model.Person;
 import ru.productinventory.repository.PersonRepository;
 import ru.productinventory.ws.ChangePublisher;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
 import static org.springframework.transaction.annotation.Isolation.SERIALIZABLE;
 
 @Service
@@ -20,6 +37,9 @@ public class PersonService {
     private final PersonRepository repo;
     private final PersonMapper mapper;
     private final ChangePublisher changes;
+    private final PageTotals totals;
+    private final MergePatch patches;
+    private final BatchSupport batches;
 
     @Transactional(readOnly = true)
     public PersonViewDTO get(Long id) {
@@ -28,26 +48,31 @@ public class PersonService {
 
     @Transactional(readOnly = true)
     public PageResponseDTO<PersonViewDTO> list(
-            int page, int size, String sort, String dir,
+            int page, int size, String sort, String dir, String after, CountMode countMode,
             String name, String eyeColorLike, String hairColorLike, String nationalityLike,
             String locationName) {
         int offset = Math.max(page, 0) * Math.max(size, 1);
 
-        var rows  = repo.findFiltered(name, eyeColorLike, hairColorLike, nationalityLike,locationName,
-                offset, size, sort, dir);
-        long total = repo.countFiltered(name, eyeColorLike, hairColorLike, nationalityLike,locationName);
-
-        var items = rows.stream().map(mapper::toView).toList();
-        return PageResponseDTO.of(items, page, size, total, sort, dir);
+        var slice = repo.findFiltered(name, eyeColorLike, hairColorLike, nationalityLike,locationName,
+                after, offset, size, sort, dir, countMode == CountMode.WINDOW);
+        var total = totals.total("person", countMode,
+                Arrays.asList(name, eyeColorLike, hairColorLike, nationalityLike, locationName), slice.total(),
+                () -> repo.countFiltered(name, eyeColorLike, hairColorLike, nationalityLike, locationName),
+                () -> repo.estimateFiltered(name, eyeColorLike, hairColorLike, nationalityLike, locationName),
+                repo::estimateTotal);
+
+        var items = slice.items().stream().map(mapper::toView).toList();
+        return PageResponseDTO.of(items, page, size, total.value(), total.mode(), sort, dir, slice.nextCursor(),
+                after != null && !after.isBlank());
     }
 
+    /** SERIALIZABLE so the business-key check cannot miss a concurrent create; retried on serialization failure. */
+    @Retryable(interceptor = RetryConfig.SERIALIZATION_RETRY)
     @Transactional(isolation = SERIALIZABLE)
     public Long create(PersonCreateDTO dto) {
         Person p = mapper.toEntity(dto);
         validate(p);
-        String nameLowerNorm = p.getName() == null ? null : p.getName().trim().toLowerCase();
-
-        Person existing = repo.findByBusinessKey(nameLowerNorm);
+        Person existing = repo.findByBusinessKey(p.getNameNorm());
 
         if (existing != null) {
             throw new IllegalArgumentException(
@@ -60,17 +85,31 @@ public class PersonService {
         return id;
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /** {@code dto.version}, when given, must still be current; a concurrent update is caught by the version check. */
+    @Transactional(isolation = READ_COMMITTED)
     public void update(Long id, PersonCreateDTO dto) {
         Person p = mapper.toEntity(dto);
         p.setId(id);
         validate(p);
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Person not found"));
+        p.setVersion(dto.getVersion() != null ? dto.getVersion() : current.getVersion());
         repo.merge(p);
         changes.broadcast("person","updated", id);
     }
 
 
-    @Transactional(isolation = SERIALIZABLE)
+    /**
+     * Applies a JSON merge patch to the current row and saves the result as {@link #update} would, with the same
+     * validation; a {@code version} in the patch is checked the same way. Only the columns whose values changed are
+     * written (dynamic-update).
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public void patch(Long id, JsonNode patch) {
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Person not found"));
+        update(id, patches.apply(mapper.toCreateDTO(current), patch));
+    }
+
+    @Transactional(isolation = READ_COMMITTED)
     public void delete(Long id) {
         var e = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Person not found"));
         repo.delete(e);
@@ -79,6 +118,75 @@ public class PersonService {
 
 
 
+    /**
+     * Applies a batch in one transaction, with the same checks as {@link #create}, {@link #update} and
+     * {@link #delete}. All items are checked before anything is written: rows and business keys are looked up with
+     * one query each, and any failing item fails the batch. Rows are then written in JDBC batches, with one change
+     * event for the batch. SERIALIZABLE and retried like {@link #create}, for the business-key check of the creates.
+     */
+    @Retryable(interceptor = RetryConfig.SERIALIZATION_RETRY)
+    @Transactional(isolation = SERIALIZABLE)
+    public BatchResponse<Long> batch(BatchRequestDTO<PersonCreateDTO, Long> req) {
+        batches.checkSize(req);
+        List<ValidationError> errors = new ArrayList<>();
+        List<Person> creates = batches.prepare(req.getCreates(), "creates", this::prepare, errors);
+        List<Person> updates = batches.prepareUpdates(req.getUpdates(), this::prepare, errors);
+        Map<Long, Person> current = batches.load(req, repo::findAllById, "Person not found", errors);
+        batches.checkVersions(req.getUpdates(), current, PersonCreateDTO::getVersion, Person::getVersion, errors);
+        checkBusinessKeys(creates, errors);
+        if (!errors.isEmpty()) return BatchResponse.failed(errors);
+
+        List<Long> deleted = new ArrayList<>();
+        for (Long id : req.getDeletes()) {
+            repo.delete(current.get(id));
+            deleted.add(id);
+        }
+        List<Long> updated = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            Long id = req.getUpdates().get(i).getId();
+            Person p = updates.get(i);
+            p.setId(id);
+            p.setVersion(current.get(id).getVersion());
+            repo.merge(p);
+            updated.add(id);
+        }
+        List<Long> created = new ArrayList<>();
+        for (Person p : creates) {
+            created.add(repo.save(p));
+        }
+        batches.broadcast("person", created, updated, deleted);
+        return BatchResponse.ok(created, updated, deleted);
+    }
+
+    private Person prepare(PersonCreateDTO dto) {
+        Person p = mapper.toEntity(dto);
+        validate(p);
+        return p;
+    }
+
+    /** Creates whose business key exists already, or repeats an earlier create of the batch. */
+    private void checkBusinessKeys(List<Person> creates, List<ValidationError> errors) {
+        Set<String> keys = new HashSet<>();
+        for (Person p : creates) {
+            if (p != null) keys.add(p.getNameNorm());
+        }
+        var existing = repo.findAllByBusinessKeys(keys);
+        Map<String, Integer> firstInBatch = new HashMap<>();
+        for (int i = 0; i < creates.size(); i++) {
+            Person p = creates.get(i);
+            if (p == null) continue;
+            Person e = existing.get(p.getNameNorm());
+            Integer first = firstInBatch.putIfAbsent(p.getNameNorm(), i);
+            if (e != null) {
+                errors.add(new ValidationError(i, "creates",
+                        "Person with same business key already exists (id=" + e.getId() + ")"));
+            } else if (first != null) {
+                errors.add(new ValidationError(i, "creates",
+                        "Person with same business key as creates[" + first + "]"));
+            }
+        }
+    }
+
     private void validate(Person p) {
         if (p.getName() == null || p.getName().trim().isEmpty())
             throw new IllegalArgumentException("name required");
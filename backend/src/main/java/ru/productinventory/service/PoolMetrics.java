@@ -0,0 +1,77 @@
+package ru.productinventory.service;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+import ru.productinventory.dto.metrics.PoolMetricsDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the connection pools of {@code datasource.mode=pool} (see {@link ru.productinventory.config.ConnectionPools}).
+ * Each pool reports connection requests here as its metrics tracker; its gauges come from the pool's own
+ * statistics. Empty in JNDI mode, where the container owns the pool.
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private static final class Tracker implements IMetricsTracker {
+        final PoolStats stats;
+        final LongAdder requests = new LongAdder();
+        final LongAdder acquireNanos = new LongAdder();
+        final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder released = new LongAdder();
+        final LongAdder usageMillis = new LongAdder();
+
+        Tracker(PoolStats stats) {
+            this.stats = stats;
+        }
+
+        /** Called for every request, including those that then time out. */
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            requests.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            released.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+
+    private final Map<String, Tracker> pools = new ConcurrentSkipListMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker t = new Tracker(poolStats);
+        pools.put(poolName, t);
+        return t;
+    }
+
+    public List<PoolMetricsDTO> pools() {
+        return pools.entrySet().stream().map(e -> {
+            Tracker t = e.getValue();
+            PoolStats s = t.stats;
+            long requests = t.requests.sum();
+            long released = t.released.sum();
+            return new PoolMetricsDTO(e.getKey(), s.getActiveConnections(), s.getIdleConnections(),
+                    s.getTotalConnections(), s.getMaxConnections(), s.getPendingThreads(), requests,
+                    requests == 0 ? 0 : t.acquireNanos.sum() / 1_000.0 / requests, t.acquireMaxNanos.get() / 1_000.0,
+                    t.timeouts.sum(), released == 0 ? 0 : (double) t.usageMillis.sum() / released);
+        }).toList();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.productinventory.dto.product.ExportFormat;
+import ru.productinventory.mapper.ProductMapper;
+import ru.productinventory.repository.ProductRepository;
+import ru.productinventory.repository.projection.ProductListRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Streams every product matching the list filters to an output stream. Rows are read through a forward-only cursor
+ * and written as they arrive; the output is flushed after each fetched block, so neither the rows nor the response
+ * body are ever held in memory as a whole.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,name,coordinatesX,coordinatesY,creationDate,unitOfMeasure,"
+            + "manufacturerId,manufacturerName,price,manufactureCost,rating,partNumber,ownerId,ownerName";
+
+    private final ProductRepository repo;
+    private final ProductMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    /** Writes the export to {@code out} without closing it. */
+    @Transactional(readOnly = true)
+    public void export(ExportFormat format, OutputStream out,
+                       String name, String partNumber, String unitOfMeasureLike,
+                       String organizationName, String personName) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) w.write(CSV_HEADER + "\n");
+
+        try (var rows = repo.streamFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName,
+                fetchSize)) {
+            Iterator<ProductListRow> it = rows.iterator();
+            long written = 0;
+            while (it.hasNext()) {
+                ProductListRow r = it.next();
+                if (format == ExportFormat.CSV) writeCsv(w, r);
+                else w.write(objectMapper.writeValueAsString(mapper.toView(r)) + "\n");
+                if (++written % fetchSize == 0) w.flush();
+            }
+        }
+        w.flush();
+    }
+
+    private static void writeCsv(Writer w, ProductListRow r) throws IOException {
+        Object[] cols = {
+                r.id(), r.name(), r.coordinatesX(), r.coordinatesY(),
+                r.creationDate() != null ? r.creationDate().toInstant() : null, r.unitOfMeasure(),
+                r.manufacturerId(), r.manufacturerName(), r.price(), r.manufactureCost(), r.rating(),
+                r.partNumber(), r.ownerId(), r.ownerName()
+        };
+        for (int i = 0; i < cols.length; i++) {
+            if (i > 0) w.write(',');
+            if (cols[i] != null) w.write(csv(cols[i].toString()));
+        }
+        w.write('\n');
+    }
+
+    /** RFC 4180 field: quoted, with quotes doubled, when it holds a separator, quote or line break. */
+    private static String csv(String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return '"' + v.replace("\"", "\"\"") + '"';
+        }
+        return v;
+    }
+}
@@ -2,10 +2,14 @@ package ru.productinventory.service;
 
 import lombok.RequiredArgsConstructor;
 import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.config.RetryConfig;
 import ru.productinventory.dto.imports.ImportResponse;
 import ru.productinventory.dto.imports.ProductImportDTO;
 import ru.productinventory.mapper.ImportMapper;
@@ -13,14 +17,15 @@ import ru.productinventory.model.*;
 import ru.productinventory.repository.OrganizationRepository;
 import ru.productinventory.repository.PersonRepository;
 import ru.productinventory.repository.ProductRepository;
+import ru.productinventory.repository.ProductStagingRepository;
 import ru.productinventory.util.NormalizationUtil;
 import ru.productinventory.ws.ChangePublisher;
+import ru.productinventory.ws.IdRanges;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
 
 import static org.springframework.transaction.annotation.Isolation.SERIALIZABLE;
 
@@ -35,157 +40,389 @@ public class ProductImportService {
     private final OrganizationRepository orgRepo;
     private final PersonRepository personRepo;
     private final ProductRepository productRepo;
+    private final ProductStagingRepository staging;
 
     private final ChangePublisher changes;
+    private final ProductStats stats;
 
     private org.hibernate.Session s() {
         return sessionFactory.getCurrentSession();
     }
 
-    private record PendingEvent(String entity, String action, Supplier<Long> id) {
+    @Value("${import.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Imports all items in one transaction. The items are consumed once, in order; every {@code import.chunk-size}
+     * items the session is flushed and cleared so a streamed source never accumulates in the persistence context.
+     */
+    @Transactional(rollbackFor = Exception.class, isolation = SERIALIZABLE)
+    public ImportResponse importAllTransactional(Iterable<ProductImportDTO> items) {
+        return importAllTransactional(items, null);
     }
 
+    /**
+     * As {@link #importAllTransactional(Iterable)}, completing the queued operation {@code importId} instead of
+     * recording a new one. On rollback the caller is responsible for failing that operation.
+     */
     @Transactional(rollbackFor = Exception.class, isolation = SERIALIZABLE)
-    public ImportResponse importAllTransactional(List<ProductImportDTO> items) {
+    public ImportResponse importAllTransactional(Iterable<ProductImportDTO> items, Long importId) {
         final LocalDateTime startedAt = LocalDateTime.now();
 
         final AtomicInteger created = new AtomicInteger(0);
-        final List<PendingEvent> events = new ArrayList<>();
+        final Map<String, IdRanges> createdIds = new LinkedHashMap<>();
         final AtomicReference<Throwable> errorRef = new AtomicReference<>();
 
+        registerOutcome(startedAt, created, createdIds, ImportMode.ORM, importId);
+
+        try {
+            ImportRun run = new ImportRun();
+            List<ProductImportDTO> chunk = new ArrayList<>(chunkSize);
+
+            for (ProductImportDTO dto : items) {
+                chunk.add(dto);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, run);
+                    chunk.clear();
+                    s().flush();
+                    s().clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, run);
+            }
+
+            s().flush();
+            created.set(run.created);
+            createdIds.putAll(run.createdIds);
+
+            return ImportResponse.ok(created.get());
+        } catch (Throwable ex) {
+            errorRef.set(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Imports all items in one transaction through {@link ProductStagingRepository}: rows are validated and mapped
+     * in Java, streamed into a staging table with COPY and then resolved and inserted with a handful of set-based
+     * statements. Same validation and error messages as {@link #importAllTransactional}; change notifications are
+     * reduced to one event per entity type.
+     */
+    @Transactional(rollbackFor = Exception.class, isolation = SERIALIZABLE)
+    public ImportResponse importAllBulkLoad(Iterable<ProductImportDTO> items) {
+        return importAllBulkLoad(items, null);
+    }
+
+    /** Bulk-load counterpart of {@link #importAllTransactional(Iterable, Long)}. */
+    @Transactional(rollbackFor = Exception.class, isolation = SERIALIZABLE)
+    public ImportResponse importAllBulkLoad(Iterable<ProductImportDTO> items, Long importId) {
+        final LocalDateTime startedAt = LocalDateTime.now();
+
+        final AtomicInteger created = new AtomicInteger(0);
+        final Map<String, IdRanges> createdIds = new LinkedHashMap<>();
+
+        registerOutcome(startedAt, created, createdIds, ImportMode.COPY, importId);
+
+        staging.createStage();
+        var writer = staging.openWriter();
+        try {
+            int lineNo = 0;
+            for (ProductImportDTO dto : items) {
+                writer.add(toStageRow(lineNo++, dto));
+            }
+            writer.finish();
+        } catch (RuntimeException ex) {
+            writer.abort();
+            throw ex;
+        }
+
+        staging.resolveExistingOrganizations();
+        var orgError = staging.findNewOrganizationError();
+        if (orgError.isPresent()) {
+            throw new IllegalArgumentException(orgError.get());
+        }
+        int newOrgs = staging.insertNewOrganizations();
+
+        staging.resolveExistingOwners();
+        int newOwners = staging.insertNewOwners();
+
+        var duplicate = staging.findFirstDuplicateInBatch();
+        var existing = staging.findFirstExisting();
+        if (duplicate.isPresent() && (existing.isEmpty() || duplicate.get().lineNo() < existing.get().lineNo())) {
+            var c = duplicate.get();
+            throw new IllegalStateException(
+                    "Product with partNumber '" + c.partNumber() +
+                            "' for manufacturer '" + c.manufacturerFullName() +
+                            "' appears more than once in import batch");
+        }
+        if (existing.isPresent()) {
+            var c = existing.get();
+            throw new IllegalStateException(
+                    "Product with partNumber '" + c.partNumber() +
+                            "' for manufacturer '" + c.manufacturerFullName() +
+                            "' already exists (id=" + c.existingId() + ")");
+        }
+
+        int inserted = staging.insertProducts();
+        staging.addStageTotals(stats.pending());
+        created.set(inserted);
+
+        // ids are assigned in SQL (IdBlocks), so only counts are reported
+        createdIds.put("organization", IdRanges.ofCount(newOrgs));
+        createdIds.put("person", IdRanges.ofCount(newOwners));
+        createdIds.put("product", IdRanges.ofCount(inserted));
+
+        return ImportResponse.ok(inserted);
+    }
+
+    private ProductStagingRepository.StageRow toStageRow(int lineNo, ProductImportDTO dto) {
+        if (dto.getManufacturer() == null) {
+            throw new IllegalArgumentException("manufacturer is required");
+        }
+        var orgDto = dto.getManufacturer();
+        if (orgDto.getFullName() == null || orgDto.getFullName().isBlank()) {
+            throw new IllegalArgumentException("manufacturer.fullName must not be null/blank");
+        }
+        String orgKeyNorm = NormalizationUtil.canonicalKey(orgDto.getFullName(), true);
+
+        // only fatal if the organization turns out not to exist yet, which is known after staging
+        Organization org = null;
+        String orgError = null;
+        try {
+            var official = mapper.toAddress(orgDto.getOfficialAddress());
+            var postal = mapper.toAddress(orgDto.getPostalAddress());
+            org = mapper.toOrganization(orgDto, official, postal);
+            validateOrganization(org);
+        } catch (IllegalArgumentException ex) {
+            orgError = ex.getMessage();
+        }
+
+        Person owner = null;
+        String ownerKeyNorm = null;
+        if (dto.getOwner() != null) {
+            var ownerLoc = mapper.toNullableLocation(dto.getOwner().getLocation());
+            owner = mapper.toNullablePerson(dto.getOwner(), ownerLoc);
+            validatePerson(owner);
+            ownerKeyNorm = NormalizationUtil.canonicalKey(owner.getName(), true);
+        }
+
+        var coords = mapper.toCoordinates(dto.getCoordinates());
+        var product = mapper.toProduct(dto, org != null ? org : new Organization(), owner, coords);
+        validateProduct(product);
+
+        return new ProductStagingRepository.StageRow(lineNo, orgKeyNorm, org, orgError, ownerKeyNorm, owner,
+                product, product.getPartNumberNorm());
+    }
+
+    /**
+     * After commit, records the operation and sends one bulk "created" event per entity type; after rollback,
+     * records the failure. With an {@code importId} the existing operation is completed instead, and a rollback is
+     * left to the caller.
+     */
+    private void registerOutcome(LocalDateTime startedAt, AtomicInteger created, Map<String, IdRanges> createdIds,
+                                 ImportMode mode, Long importId) {
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
             @Override
             public void afterCommit() {
-                List<PendingEvent> safeEvents = List.copyOf(events);
                 int createdFinal = created.get();
 
-                for (PendingEvent e : safeEvents) {
-                    changes.broadcast(e.entity(), e.action(), e.id().get());
-                }
+                Long operationId = importId;
+                if (operationId == null) operationId = history.recordSuccess(startedAt, createdFinal, mode);
+                else history.complete(importId, createdFinal);
 
-                history.recordSuccess(startedAt, createdFinal);
+                for (Map.Entry<String, IdRanges> e : createdIds.entrySet()) {
+                    changes.broadcastBulk(e.getKey(), "created", operationId, e.getValue());
+                }
                 changes.broadcast("imports", "" +
                         "", null);
             }
 
             @Override
             public void afterCompletion(int status) {
-                if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
-                    history.recordFailure(startedAt);
+                if (status == TransactionSynchronization.STATUS_ROLLED_BACK && importId == null) {
+                    history.recordFailure(startedAt, mode);
                     changes.broadcast("imports", "updated", null);
                 }
             }
         });
+    }
 
+    /**
+     * Imports one chunk of a chunked import in its own transaction and advances the checkpoint of the operation's
+     * run {@code attempt} in that same transaction. Returns the number of created products. The chunk is held in
+     * memory, so a serialization failure is retried with it as a whole.
+     *
+     * @throws ItemFailure when an item is rejected, with the item's index in the import
+     */
+    @Retryable(interceptor = RetryConfig.SERIALIZATION_RETRY)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class, isolation = SERIALIZABLE)
+    public int importCheckpointedChunk(Long importId, int attempt, List<ProductImportDTO> chunk, int fromIndex) {
+        ImportRun run = new ImportRun();
         try {
-            Map<String, Organization> orgCache = new HashMap<>();
-            Map<String, Person> personCache = new HashMap<>();
-            Set<String> productKeysInBatch = new HashSet<>();
+            importChunk(chunk, run);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ItemFailure(fromIndex + run.position, e);
+        }
+        s().flush();
 
-            for (ProductImportDTO dto : items) {
+        history.checkpoint(importId, attempt, fromIndex, fromIndex + chunk.size() - 1, run.created);
 
-                if (dto.getManufacturer() == null) {
-                    throw new IllegalArgumentException("manufacturer is required");
-                }
-                var orgDto = dto.getManufacturer();
-                if (orgDto.getFullName() == null || orgDto.getFullName().isBlank()) {
-                    throw new IllegalArgumentException("manufacturer.fullName must not be null/blank");
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Map.Entry<String, IdRanges> e : run.createdIds.entrySet()) {
+                    changes.broadcastBulk(e.getKey(), "created", importId, e.getValue());
                 }
+                changes.broadcast("imports", "updated", importId);
+            }
+        });
+        return run.created;
+    }
 
-                String orgKeyNorm = NormalizationUtil.canonicalKey(orgDto.getFullName(), true);
+    /** An item of a checkpointed chunk was rejected; the cause carries the message. */
+    public static final class ItemFailure extends RuntimeException {
+        private final int index;
 
-                Organization org = orgCache.get(orgKeyNorm);
-                if (org == null) {
-                    org = orgRepo.findByFullNameNormalized(orgKeyNorm);
+        ItemFailure(int index, RuntimeException cause) {
+            super(cause.getMessage(), cause);
+            this.index = index;
+        }
 
-                    if (org == null) {
-                        var official = mapper.toAddress(orgDto.getOfficialAddress());
-                        var postal = mapper.toAddress(orgDto.getPostalAddress());
-                        org = mapper.toOrganization(orgDto, official, postal);
+        /** 0-based index of the rejected item in the whole import. */
+        public int getIndex() {
+            return index;
+        }
+    }
 
-                        validateOrganization(org);
-                        s().persist(org);
+    private static final class ImportRun {
+        int created;
+        /** Index in the chunk of the item being imported. */
+        int position = -1;
+        final Map<String, IdRanges> createdIds = new LinkedHashMap<>();
 
-                        Organization orgRef = org;
-                        events.add(new PendingEvent(
-                                "organization",
-                                "created",
-                                () -> (long) orgRef.getId()
-                        ));
-                    }
+        void created(String entity, long id) {
+            createdIds.computeIfAbsent(entity, k -> new IdRanges()).add(id);
+        }
+    }
 
-                    orgCache.put(orgKeyNorm, org);
-                }
-                Person owner = null;
-                if (dto.getOwner() != null) {
-                    var ownerLoc = mapper.toNullableLocation(dto.getOwner().getLocation());
-                    var ownerTmp = mapper.toNullablePerson(dto.getOwner(), ownerLoc);
-
-                    validatePerson(ownerTmp);
-
-                    String ownerKeyNorm = NormalizationUtil.canonicalKey(ownerTmp.getName(), true);
-
-                    owner = personCache.get(ownerKeyNorm);
-                    if (owner == null) {
-                        Person existingOwner = personRepo.findByBusinessKey(ownerKeyNorm);
-                        if (existingOwner != null) {
-                            owner = existingOwner;
-                        } else {
-                            s().persist(ownerTmp);
-                            owner = ownerTmp;
-
-                            Person ownerRef = owner;
-                            events.add(new PendingEvent(
-                                    "person",
-                                    "created",
-                                    () -> (long) ownerRef.getId()
-                            ));
-                        }
-                        personCache.put(ownerKeyNorm, owner);
-                    }
-                }
+    /**
+     * Resolves the business keys of a whole chunk with a few set-based queries, then creates the chunk's rows
+     * using hash lookups only.
+     */
+    private void importChunk(List<ProductImportDTO> chunk, ImportRun run) {
+        Set<String> orgKeys = new HashSet<>();
+        Set<String> personKeys = new HashSet<>();
+        for (ProductImportDTO dto : chunk) {
+            var orgDto = dto.getManufacturer();
+            if (orgDto != null && orgDto.getFullName() != null && !orgDto.getFullName().isBlank()) {
+                orgKeys.add(NormalizationUtil.canonicalKey(orgDto.getFullName(), true));
+            }
+            if (dto.getOwner() != null && dto.getOwner().getName() != null) {
+                personKeys.add(NormalizationUtil.canonicalKey(dto.getOwner().getName(), true));
+            }
+        }
 
-                var coords = mapper.toCoordinates(dto.getCoordinates());
-                var product = mapper.toProduct(dto, org, owner, coords);
+        Map<String, Organization> orgCache = orgRepo.findAllByFullNameNormalized(orgKeys);
+        Map<String, Person> personCache = personRepo.findAllByBusinessKeys(personKeys);
+
+        Set<Integer> existingOrgIds = new HashSet<>();
+        Set<String> partNumberKeys = new HashSet<>();
+        for (ProductImportDTO dto : chunk) {
+            var orgDto = dto.getManufacturer();
+            if (orgDto == null || orgDto.getFullName() == null || dto.getPartNumber() == null) continue;
+            Organization org = orgCache.get(NormalizationUtil.canonicalKey(orgDto.getFullName(), true));
+            if (org != null) {
+                existingOrgIds.add(org.getId());
+                partNumberKeys.add(NormalizationUtil.canonicalPartNumber(dto.getPartNumber()));
+            }
+        }
+        Map<ProductRepository.BusinessKey, ProductRepository.ExistingProduct> existingProducts =
+                productRepo.findExistingProducts(existingOrgIds, partNumberKeys);
+
+        Set<String> productKeysInBatch = new HashSet<>();
 
-                validateProduct(product);
+        for (ProductImportDTO dto : chunk) {
+            run.position++;
 
-                String partNumberNorm = NormalizationUtil.canonicalPartNumber(product.getPartNumber());
+            if (dto.getManufacturer() == null) {
+                throw new IllegalArgumentException("manufacturer is required");
+            }
+            var orgDto = dto.getManufacturer();
+            if (orgDto.getFullName() == null || orgDto.getFullName().isBlank()) {
+                throw new IllegalArgumentException("manufacturer.fullName must not be null/blank");
+            }
 
-                String productKey = orgKeyNorm + "#" + partNumberNorm;
+            String orgKeyNorm = NormalizationUtil.canonicalKey(orgDto.getFullName(), true);
 
-                if (!productKeysInBatch.add(productKey)) {
-                    throw new IllegalStateException(
-                            "Product with partNumber '" + product.getPartNumber() +
-                                    "' for manufacturer '" + org.getFullName() +
-                                    "' appears more than once in import batch");
-                }
+            Organization org = orgCache.get(orgKeyNorm);
+            if (org == null) {
+                var official = mapper.toAddress(orgDto.getOfficialAddress());
+                var postal = mapper.toAddress(orgDto.getPostalAddress());
+                org = mapper.toOrganization(orgDto, official, postal);
+
+                validateOrganization(org);
+                s().persist(org);
+
+                run.created("organization", org.getId());
+                orgCache.put(orgKeyNorm, org);
+            }
+            Person owner = null;
+            if (dto.getOwner() != null) {
+                var ownerLoc = mapper.toNullableLocation(dto.getOwner().getLocation());
+                var ownerTmp = mapper.toNullablePerson(dto.getOwner(), ownerLoc);
+
+                validatePerson(ownerTmp);
+
+                String ownerKeyNorm = NormalizationUtil.canonicalKey(ownerTmp.getName(), true);
+
+                owner = personCache.get(ownerKeyNorm);
+                if (owner == null) {
+                    s().persist(ownerTmp);
+                    owner = ownerTmp;
 
-                Product existingProduct = productRepo.findByBusinessKey(org, partNumberNorm);
-                if (existingProduct != null) {
-                    throw new IllegalStateException(
-                            "Product with partNumber '" + product.getPartNumber() +
-                                    "' for manufacturer '" + org.getFullName() +
-                                    "' already exists (id=" + existingProduct.getId() + ")");
+                    run.created("person", owner.getId());
+                    personCache.put(ownerKeyNorm, owner);
                 }
+            }
+
+            var coords = mapper.toCoordinates(dto.getCoordinates());
+            var product = mapper.toProduct(dto, org, owner, coords);
+
+            validateProduct(product);
 
-                s().persist(product);
-                created.incrementAndGet();
+            String partNumberNorm = NormalizationUtil.canonicalPartNumber(product.getPartNumber());
 
-                Product productRef = product;
-                events.add(new PendingEvent(
-                        "product",
-                        "created",
-                        () -> (long) productRef.getId()
-                ));
+            String productKey = orgKeyNorm + "#" + partNumberNorm;
+
+            if (!productKeysInBatch.add(productKey)) {
+                throw new IllegalStateException(
+                        "Product with partNumber '" + product.getPartNumber() +
+                                "' for manufacturer '" + org.getFullName() +
+                                "' appears more than once in import batch");
             }
 
-            s().flush();
+            // rows flushed in earlier chunks are found by the lookup; those this transaction inserted are repeats
+            var existingProduct = existingProducts.get(
+                    new ProductRepository.BusinessKey(org.getId(), partNumberNorm));
+            if (existingProduct != null && existingProduct.insertedByThisTransaction()) {
+                throw new IllegalStateException(
+                        "Product with partNumber '" + product.getPartNumber() +
+                                "' for manufacturer '" + org.getFullName() +
+                                "' appears more than once in import batch");
+            }
+            if (existingProduct != null) {
+                throw new IllegalStateException(
+                        "Product with partNumber '" + product.getPartNumber() +
+                                "' for manufacturer '" + org.getFullName() +
+                                "' already exists (id=" + existingProduct.id() + ")");
+            }
 
-            return ImportResponse.ok(created.get());
-        } catch (Throwable ex) {
-            errorRef.set(ex);
-            throw ex;
+            s().persist(product);
+            stats.added(product);
+            run.created++;
+
+            run.created("product", product.getId());
         }
     }
 
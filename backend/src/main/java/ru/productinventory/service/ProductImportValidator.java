@@ -0,0 +1,139 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.productinventory.dto.imports.ProductImportDTO;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.util.JsonArrayReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bean validation of import items, run before any import touches the database. Items are validated in chunks of
+ * {@code import.validation.chunk-size} on the {@code validationExecutor} pool while the caller keeps reading; at most
+ * two chunks per worker are in flight. Errors keep their item order, and collection stops once more than
+ * {@code import.validation.max-errors} errors have been found; only then is the list truncated and marked.
+ */
+@Component
+public class ProductImportValidator {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${import.validation.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${import.validation.max-errors:1000}")
+    private int maxErrors;
+
+    public ProductImportValidator(ObjectMapper objectMapper, Validator validator,
+                                  @Qualifier("validationExecutor") ThreadPoolTaskExecutor executor) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.executor = executor;
+    }
+
+    public List<ValidationError> validate(Iterable<ProductImportDTO> items) {
+        int limit = maxErrors > 0 ? maxErrors : Integer.MAX_VALUE;
+        int maxInFlight = executor.getMaxPoolSize() * 2;
+
+        List<ValidationError> errors = new ArrayList<>();
+        Deque<Future<List<ValidationError>>> inFlight = new ArrayDeque<>();
+        Iterator<ProductImportDTO> it = items.iterator();
+        List<ProductImportDTO> chunk = new ArrayList<>(chunkSize);
+        int offset = 0;
+        try {
+            while (errors.size() <= limit && it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() < chunkSize && it.hasNext()) continue;
+
+                if (inFlight.isEmpty() && !it.hasNext()) {
+                    // small inputs and the tail after all workers are drained need no thread hop
+                    errors.addAll(validateChunk(chunk, offset));
+                } else {
+                    List<ProductImportDTO> c = chunk;
+                    int o = offset;
+                    inFlight.add(executor.submit(() -> validateChunk(c, o)));
+                    if (inFlight.size() >= maxInFlight) errors.addAll(await(inFlight.poll()));
+                }
+                offset += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+            while (errors.size() <= limit && !inFlight.isEmpty()) {
+                errors.addAll(await(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(f -> f.cancel(true));
+        }
+
+        if (errors.size() > limit) {
+            errors = new ArrayList<>(errors.subList(0, limit));
+            errors.add(new ValidationError(-1, "items",
+                    "Too many validation errors, only the first " + limit + " are reported"));
+        }
+        return errors;
+    }
+
+    private List<ValidationError> validateChunk(List<ProductImportDTO> chunk, int offset) {
+        List<ValidationError> errors = new ArrayList<>();
+        int i = offset;
+        for (ProductImportDTO dto : chunk) {
+            if (dto == null) {
+                errors.add(new ValidationError(i, "items[" + i + "]", "must not be null"));
+                i++;
+                continue;
+            }
+            Set<ConstraintViolation<ProductImportDTO>> v = validator.validate(dto);
+            for (ConstraintViolation<?> cv : v) {
+                String path = "items[" + i + "]." + cv.getPropertyPath();
+                errors.add(new ValidationError(i, path, cv.getMessage()));
+            }
+            i++;
+        }
+        return errors;
+    }
+
+    private static List<ValidationError> await(Future<List<ValidationError>> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import validation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Import validation failed", e.getCause());
+        }
+    }
+
+    /** Validates a JSON array file; a malformed file yields a single {@code file} error. */
+    public List<ValidationError> validate(InputStreamSource source) {
+        return validate(source, UnaryOperator.identity());
+    }
+
+    public List<ValidationError> validate(InputStreamSource source,
+                                          UnaryOperator<Iterable<ProductImportDTO>> decorator) {
+        try (var items = JsonArrayReader.open(objectMapper, source.getInputStream(), ProductImportDTO.class)) {
+            return validate(decorator.apply(items));
+        } catch (IOException | UncheckedIOException e) {
+            String msg = e instanceof UncheckedIOException u ? u.getCause().getMessage() : e.getMessage();
+            return List.of(new ValidationError(-1, "file", "Invalid JSON: " + msg));
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package ru.productinventory.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchResponse;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.dto.paging.CountMode;
 import ru.productinventory.dto.paging.PageResponseDTO;
 import ru.productinventory.dto.product.ProductCreateDTO;
 import ru.productinventory.dto.product.ProductViewDTO;
+import ru.productinventory.mapper.MergePatch;
 import ru.productinventory.mapper.ProductMapper;
 import ru.productinventory.model.Coordinates;
-import ru.productinventory.model.Organization;
 import ru.productinventory.model.Product;
 import ru.productinventory.repository.ProductRepository;
 import ru.productinventory.ws.ChangePublisher;
 
-import static org.springframework.transaction.annotation.Isolation.SERIALIZABLE;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
 
 
 @Service
@@ -22,6 +35,10 @@ public class ProductService {
     private final ProductRepository repo;
     private final ProductMapper mapper;
     private final ChangePublisher changes;
+    private final PageTotals totals;
+    private final MergePatch patches;
+    private final ProductStats stats;
+    private final BatchSupport batches;
 
     @Transactional(readOnly = true)
     public ProductViewDTO get(Long id) {
@@ -30,64 +47,158 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public PageResponseDTO<ProductViewDTO> list(
-            int page, int size, String sort, String dir,
+            int page, int size, String sort, String dir, String after, CountMode countMode,
             String name, String partNumber, String unitOfMeasureLike,
             String organizationName, String personName
     ) {
         int offset = Math.max(page, 0) * Math.max(size, 1);
 
-        var rows  = repo.findFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName,
-                offset, size, sort, dir);
-        long total = repo.countFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName);
-
-        var items = rows.stream().map(mapper::toView).toList();
-        return PageResponseDTO.of(items, page, size, total, sort, dir);
+        var slice = repo.findFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName,
+                after, offset, size, sort, dir, countMode == CountMode.WINDOW);
+        var total = totals.total("product", countMode,
+                Arrays.asList(name, partNumber, unitOfMeasureLike, organizationName, personName), slice.total(),
+                () -> repo.countFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName),
+                () -> repo.estimateFiltered(name, partNumber, unitOfMeasureLike, organizationName, personName),
+                repo::estimateTotal);
+
+        var items = slice.items().stream().map(mapper::toView).toList();
+        return PageResponseDTO.of(items, page, size, total.value(), total.mode(), sort, dir, slice.nextCursor(),
+                after != null && !after.isBlank());
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /**
+     * The unique business-key index decides between concurrent creates, so READ COMMITTED is enough; the existing
+     * product is only looked up to report a conflict.
+     */
+    @Transactional(isolation = READ_COMMITTED)
     public Long create(ProductCreateDTO dto) {
         Product p = mapper.toEntity(dto);
 
         validate(p);
 
-        Organization m = p.getManufacturer();
-
-        String partNumberNorm = null;
-        if (p.getPartNumber() != null) {
-            partNumberNorm = p.getPartNumber()
-                    .trim()
-                    .toLowerCase()
-                    .replaceAll("[\\s\\u2013\\u2014]+", "-");
-        }
-
-        Product existing = repo.findByBusinessKey(m, partNumberNorm);
-        if (existing != null) {
-            throw new IllegalArgumentException(
-                    "Product with same manufacturer and partNumber already exists (id=" + existing.getId() + ")"
-            );
+        Long id = repo.insertIfAbsent(p);
+        if (id == null) {
+            Product existing = repo.findByBusinessKey(p.getManufacturer(), p.getPartNumberNorm());
+            throw new IllegalArgumentException("Product with same manufacturer and partNumber already exists"
+                    + (existing != null ? " (id=" + existing.getId() + ")" : ""));
         }
 
-        Long id = repo.save(p);
+        stats.added(p);
         changes.broadcast("product", "created", id);
         return id;
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /** {@code dto.version}, when given, must still be current; a concurrent update is caught by the version check. */
+    @Transactional(isolation = READ_COMMITTED)
     public void update(Long id, ProductCreateDTO dto) {
         Product p = mapper.toEntity(dto);
         p.setId(id);
         validate(p);
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        p.setVersion(dto.getVersion() != null ? dto.getVersion() : current.getVersion());
+        stats.removed(current);
         repo.merge(p);
+        stats.added(p);
         changes.broadcast("product", "updated", id);
     }
 
-    @Transactional(isolation = SERIALIZABLE)
+    /**
+     * Applies a JSON merge patch to the current row and saves the result as {@link #update} would, with the same
+     * validation; a {@code version} in the patch is checked the same way. Only the columns whose values changed are
+     * written (dynamic-update).
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public void patch(Long id, JsonNode patch) {
+        var current = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        update(id, patches.apply(mapper.toCreateDTO(current), patch));
+    }
+
+    @Transactional(isolation = READ_COMMITTED)
     public void delete(Long id) {
         var e = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        stats.removed(e);
         repo.delete(e);
         changes.broadcast("product", "deleted", id);
     }
 
+    /**
+     * Applies a batch in one transaction, with the same checks as {@link #create}, {@link #update} and
+     * {@link #delete}. All items are checked before anything is written: rows and business keys are looked up with
+     * one query each, and any failing item fails the batch. Rows are then written in JDBC batches, with one change
+     * event for the batch. A concurrent create of the same business key is still caught by the unique index.
+     */
+    @Transactional(isolation = READ_COMMITTED)
+    public BatchResponse<Long> batch(BatchRequestDTO<ProductCreateDTO, Long> req) {
+        batches.checkSize(req);
+        List<ValidationError> errors = new ArrayList<>();
+        List<Product> creates = batches.prepare(req.getCreates(), "creates", this::prepare, errors);
+        List<Product> updates = batches.prepareUpdates(req.getUpdates(), this::prepare, errors);
+        Map<Long, Product> current = batches.load(req, repo::findAllById, "Product not found", errors);
+        batches.checkVersions(req.getUpdates(), current, ProductCreateDTO::getVersion, Product::getVersion, errors);
+        checkBusinessKeys(creates, errors);
+        if (!errors.isEmpty()) return BatchResponse.failed(errors);
+
+        List<Long> deleted = new ArrayList<>();
+        for (Long id : req.getDeletes()) {
+            Product e = current.get(id);
+            stats.removed(e);
+            repo.delete(e);
+            deleted.add(id);
+        }
+        List<Long> updated = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            Long id = req.getUpdates().get(i).getId();
+            Product p = updates.get(i);
+            Product cur = current.get(id);
+            p.setId(id);
+            p.setVersion(cur.getVersion());
+            stats.removed(cur);
+            repo.merge(p);
+            stats.added(p);
+            updated.add(id);
+        }
+        List<Long> created = new ArrayList<>();
+        for (Product p : creates) {
+            created.add(repo.save(p));
+            stats.added(p);
+        }
+        batches.broadcast("product", created, updated, deleted);
+        return BatchResponse.ok(created, updated, deleted);
+    }
+
+    private Product prepare(ProductCreateDTO dto) {
+        Product p = mapper.toEntity(dto);
+        validate(p);
+        return p;
+    }
+
+    /** Creates whose business key exists already, or repeats an earlier create of the batch. */
+    private void checkBusinessKeys(List<Product> creates, List<ValidationError> errors) {
+        Set<Integer> manufacturerIds = new HashSet<>();
+        Set<String> partNumbers = new HashSet<>();
+        for (Product p : creates) {
+            if (p == null) continue;
+            manufacturerIds.add(p.getManufacturer().getId());
+            partNumbers.add(p.getPartNumberNorm());
+        }
+        var existing = repo.findExistingBusinessKeys(manufacturerIds, partNumbers);
+        Map<ProductRepository.BusinessKey, Integer> firstInBatch = new HashMap<>();
+        for (int i = 0; i < creates.size(); i++) {
+            Product p = creates.get(i);
+            if (p == null) continue;
+            var key = new ProductRepository.BusinessKey(p.getManufacturer().getId(), p.getPartNumberNorm());
+            Long existingId = existing.get(key);
+            Integer first = firstInBatch.putIfAbsent(key, i);
+            if (existingId != null) {
+                errors.add(new ValidationError(i, "creates",
+                        "Product with same manufacturer and partNumber already exists (id=" + existingId + ")"));
+            } else if (first != null) {
+                errors.add(new ValidationError(i, "creates",
+                        "Product with same manufacturer and partNumber as creates[" + first + "]"));
+            }
+        }
+    }
+
     private void validate(Product p) {
         if (p.getName() == null || p.getName().trim().isEmpty())
             throw new IllegalArgumentException("name required");
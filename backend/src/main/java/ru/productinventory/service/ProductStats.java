@@ -0,0 +1,104 @@
+package ru.productinventory.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.model.Product;
+import ru.productinventory.repository.ProductStatsRepository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the product changes of the current transaction into one {@link ProductStatsRepository.Delta}, stores it
+ * in the outbox (V12) just before commit, in the same transaction, and applies it to the summary tables after
+ * commit; a rolled-back transaction leaves both untouched. Applying outside the writing transaction keeps the shared
+ * summary rows out of its SERIALIZABLE conflict checks. Deltas whose apply did not happen, because it failed or the
+ * instance stopped, are applied by a drain at startup and every {@code analytics.outbox.drain-ms}.
+ */
+@Component
+public class ProductStats {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStats.class);
+
+    /** Outbox entries applied per drain transaction. */
+    private static final int DRAIN_BATCH = 100;
+
+    private final AnalyticsService analytics;
+    private final TaskScheduler scheduler;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @Value("${analytics.outbox.drain-ms:60000}")
+    private long drainMs;
+
+    public ProductStats(AnalyticsService analytics, @Qualifier("maintenanceScheduler") TaskScheduler scheduler) {
+        this.analytics = analytics;
+        this.scheduler = scheduler;
+    }
+
+    public void added(Product p) {
+        pending().add(p);
+    }
+
+    /** Call before {@code p} is changed: its values at the time of the call are the ones removed. */
+    public void removed(Product p) {
+        pending().remove(p);
+    }
+
+    /** The current transaction's delta, for writers that compute theirs in bulk. */
+    public ProductStatsRepository.Delta pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Product changes must be recorded within a transaction");
+        }
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Pending p) return p.delta;
+        }
+        Pending p = new Pending();
+        TransactionSynchronizationManager.registerSynchronization(p);
+        return p.delta;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        scheduler.scheduleWithFixedDelay(this::drain, Duration.ofMillis(drainMs));
+    }
+
+    void drain() {
+        try {
+            while (analytics.drainQueued(DRAIN_BATCH) == DRAIN_BATCH) {
+                // more may be left
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not drain the analytics outbox", e);
+        }
+    }
+
+    private final class Pending implements TransactionSynchronization {
+        final ProductStatsRepository.Delta delta = new ProductStatsRepository.Delta();
+        Long outboxId;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!delta.isEmpty()) outboxId = analytics.enqueue(delta);
+        }
+
+        @Override
+        public void afterCommit() {
+            if (outboxId == null) return;
+            try {
+                analytics.applyQueued(outboxId, delta);
+            } catch (RuntimeException e) {
+                // the delta is committed in the outbox; the next drain applies it
+                log.warn("Could not apply analytics delta {}", outboxId, e);
+            }
+        }
+    }
+}
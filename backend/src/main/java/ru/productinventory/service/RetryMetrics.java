@@ -0,0 +1,61 @@
+package ru.productinventory.service;
+
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.stereotype.Component;
+import ru.productinventory.dto.metrics.RetryMetricsDTO;
+import ru.productinventory.util.SerializationFailures;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the outcomes of the serialization retry (see {@link ru.productinventory.config.RetryConfig}) per operation.
+ * An operation is the retried method, or the {@link RetryContext#NAME} a programmatic caller sets.
+ */
+@Component
+public class RetryMetrics implements RetryListener {
+
+    private static final class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder recovered = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+    }
+
+    private final Map<String, Counters> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        Counters c = operations.computeIfAbsent(operation(context, callback), k -> new Counters());
+        int failedAttempts = context.getRetryCount();
+        c.calls.increment();
+        c.retries.add(throwable == null ? failedAttempts : Math.max(failedAttempts - 1, 0));
+        if (throwable == null && failedAttempts > 0) c.recovered.increment();
+        if (throwable != null && SerializationFailures.isSerializationFailure(throwable)) c.exhausted.increment();
+    }
+
+    public List<RetryMetricsDTO> operations() {
+        return operations.entrySet().stream()
+                .map(e -> new RetryMetricsDTO(e.getKey(), e.getValue().calls.sum(), e.getValue().retries.sum(),
+                        e.getValue().recovered.sum(), e.getValue().exhausted.sum()))
+                .sorted(Comparator.comparing(RetryMetricsDTO::operation))
+                .toList();
+    }
+
+    private static String operation(RetryContext context, RetryCallback<?, ?> callback) {
+        if (callback instanceof MethodInvocationRetryCallback<?, ?> m) {
+            Method method = m.getInvocation().getMethod();
+            return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        Object name = context.getAttribute(RetryContext.NAME);
+        return name != null ? name.toString() : "unnamed";
+    }
+}
@@ -0,0 +1,88 @@
+package ru.productinventory.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the elements of a top-level JSON array one at a time, so only the current element is held in memory.
+ * Single-use: {@link #iterator()} may be called once. Parse errors surface as {@link UncheckedIOException}.
+ */
+public final class JsonArrayReader<T> implements Iterable<T>, Closeable {
+
+    private final JsonParser parser;
+    private final ObjectReader reader;
+
+    private boolean iterated;
+    private boolean buffered;
+    private boolean done;
+    private T next;
+
+    private JsonArrayReader(JsonParser parser, ObjectReader reader) {
+        this.parser = parser;
+        this.reader = reader;
+    }
+
+    public static <T> JsonArrayReader<T> open(ObjectMapper mapper, InputStream in, Class<T> type) throws IOException {
+        JsonParser p = mapper.getFactory().createParser(in);
+        if (p.nextToken() != JsonToken.START_ARRAY) {
+            JsonParseException e = new JsonParseException(p, "Expected JSON array");
+            p.close();
+            throw e;
+        }
+        return new JsonArrayReader<>(p, mapper.readerFor(type));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iterated) throw new IllegalStateException("JSON array can only be iterated once");
+        iterated = true;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public T next() {
+                if (!advance()) throw new NoSuchElementException();
+                buffered = false;
+                T v = next;
+                next = null;
+                return v;
+            }
+        };
+    }
+
+    private boolean advance() {
+        if (buffered) return true;
+        if (done) return false;
+        try {
+            JsonToken t = parser.nextToken();
+            if (t == null || t == JsonToken.END_ARRAY) {
+                done = true;
+                return false;
+            }
+            next = reader.readValue(parser);
+            buffered = true;
+            return true;
+        } catch (IOException e) {
+            done = true;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -1,24 +1,116 @@
 package ru.productinventory.util;
 
 import java.text.Normalizer;
+import java.util.Locale;
 
+/**
+ * Business-key normalization, done in a single pass over the input with no regexes.
+ * <ul>
+ *     <li>{@link #canonicalKey}: strips leading and trailing whitespace, turns no-break spaces into spaces and collapses
+ *     runs of {@code [ \t\n\x0B\f\r]} into a single space. The result is then NFC-normalized and optionally
+ *     lower-cased.</li>
+ *     <li>{@link #canonicalPartNumber}: applies {@code canonicalKey} without lower-casing. It then turns en/em dashes
+ *     and {@code _} into {@code -}, drops the whitespace around them and upper-cases the result.</li>
+ * </ul>
+ * NFC is skipped when every char is below U+0300, because such text has no combining marks and is already normalized.
+ * Case mapping uses {@link Locale#ROOT}, so a key never depends on the JVM's default locale; for ASCII input it is
+ * done in place. The input is returned as is when nothing changes.
+ */
 public final class NormalizationUtil {
     private NormalizationUtil() {}
 
+    private static final char NBSP = '\u00A0';
+    private static final char FIRST_COMBINING_MARK = '\u0300';
+
     public static String canonicalKey(String s, boolean lower) {
         if (s == null) return null;
-        String t = s.strip()
-                .replace('\u00A0', ' ')
-                .replaceAll("\\s+", " ");
-        t = Normalizer.normalize(t, Normalizer.Form.NFC);
-        return lower ? t.toLowerCase() : t;
+        return canonicalize(s, false, lower);
     }
 
     public static String canonicalPartNumber(String pn) {
         if (pn == null) return null;
-        String t = canonicalKey(pn, false);
-        t = t.replace('–','-').replace('—','-');
-        t = t.replaceAll("\\s*[-_]\\s*", "-");
-        return t.toUpperCase();
+        return canonicalize(pn, true, false);
+    }
+
+    private static String canonicalize(String s, boolean partNumber, boolean lower) {
+        // String.strip() semantics: Character.isWhitespace, which excludes NBSP
+        int start = 0, end = s.length();
+        while (start < end && Character.isWhitespace(s.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) end--;
+
+        // out stays null while the result is still identical to s[start, start + n)
+        char[] out = null;
+        int n = 0;
+        boolean inSpace = false;
+        char max = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            char r;
+            if (isSpace(c)) {
+                if (inSpace) {
+                    if (out == null) out = copy(s, start, n, end - start);
+                    continue;
+                }
+                inSpace = true;
+                r = ' ';
+            } else if (partNumber && isDash(c)) {
+                if (n > 0 && (out == null ? s.charAt(start + n - 1) : out[n - 1]) == ' ') {
+                    if (out == null) out = copy(s, start, n, end - start);
+                    n--;
+                }
+                // the dash also swallows the whitespace run that follows it
+                inSpace = true;
+                r = '-';
+            } else {
+                inSpace = false;
+                if (c > max) max = c;
+                r = c;
+            }
+            if (out == null && r != c) out = copy(s, start, n, end - start);
+            if (out != null) out[n] = r;
+            n++;
+        }
+
+        boolean upper = partNumber;
+        if (max < 0x80) {
+            if (lower || upper) {
+                for (int k = 0; k < n; k++) {
+                    char c = out == null ? s.charAt(start + k) : out[k];
+                    char r = lower ? asciiLower(c) : asciiUpper(c);
+                    if (r == c) continue;
+                    if (out == null) out = copy(s, start, n, end - start);
+                    out[k] = r;
+                }
+            }
+            return out == null ? s.substring(start, end) : new String(out, 0, n);
+        }
+
+        String t = out == null ? s.substring(start, end) : new String(out, 0, n);
+        if (max >= FIRST_COMBINING_MARK) t = Normalizer.normalize(t, Normalizer.Form.NFC);
+        if (upper) return t.toUpperCase(Locale.ROOT);
+        return lower ? t.toLowerCase(Locale.ROOT) : t;
+    }
+
+    /** {@code \s} of java.util.regex without UNICODE_CHARACTER_CLASS, plus NBSP. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == NBSP || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isDash(char c) {
+        return c == '-' || c == '_' || c == '\u2013' || c == '\u2014';
+    }
+
+    private static char asciiLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static char asciiUpper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    private static char[] copy(String s, int from, int count, int capacity) {
+        char[] buf = new char[capacity];
+        s.getChars(from, from + count, buf, 0);
+        return buf;
     }
 }
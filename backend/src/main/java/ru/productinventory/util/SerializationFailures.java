@@ -0,0 +1,26 @@
+package ru.productinventory.util;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * PostgreSQL errors after which the whole transaction may simply be run again: serialization failure (40001),
+ * raised by SERIALIZABLE transactions, and deadlock (40P01).
+ */
+public final class SerializationFailures {
+    private SerializationFailures() {}
+
+    private static final Set<String> RETRYABLE_STATES = Set.of("40001", "40P01");
+
+    /** Looks through the cause chain, and the chained exceptions of JDBC batch failures. */
+    public static boolean isSerializationFailure(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause() == c ? null : c.getCause()) {
+            if (c instanceof SQLException sql) {
+                for (SQLException e = sql; e != null; e = e.getNextException()) {
+                    if (RETRYABLE_STATES.contains(e.getSQLState())) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
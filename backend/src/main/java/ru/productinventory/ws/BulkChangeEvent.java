@@ -0,0 +1,19 @@
+package ru.productinventory.ws;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One notification for many rows of one entity type. {@code ranges} holds inclusive {@code [from, to]} id ranges,
+ * or is null when the ids are unknown or too scattered; {@code count} is always set. {@code importId} is null for
+ * a batch request.
+ */
+@Data @AllArgsConstructor
+public class BulkChangeEvent {
+    private String entity;
+    private String action;
+    private Number importId;
+    private long count;
+    private List<long[]> ranges;
+}
@@ -1,15 +1,39 @@
 package ru.productinventory.ws;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+/**
+ * Sends change events to {@code /topic/changes}. Entity changes are also published as application events so that
+ * in-process caches can listen for them.
+ */
 @Component
 @RequiredArgsConstructor
 public class ChangePublisher {
     private final SimpMessagingTemplate simp;
+    private final ApplicationEventPublisher events;
 
     public void broadcast(String entity, String action, Number id) {
-        simp.convertAndSend("/topic/changes", new ChangeEvent(entity, action, id));
+        var event = new ChangeEvent(entity, action, id);
+        events.publishEvent(event);
+        simp.convertAndSend("/topic/changes", event);
+    }
+
+    /**
+     * One event for all rows of {@code entity} touched by an import or a batch ({@code importId} null); nothing is sent
+     * for an empty set.
+     */
+    public void broadcastBulk(String entity, String action, Number importId, IdRanges ids) {
+        if (ids.count() == 0) return;
+        var event = new BulkChangeEvent(entity, action, importId, ids.count(), ids.ranges());
+        events.publishEvent(event);
+        simp.convertAndSend("/topic/changes", event);
+    }
+
+    public void importProgress(long importId, String phase, long processed, double rowsPerSecond) {
+        simp.convertAndSend("/topic/changes",
+                new ImportProgressEvent("imports", "progress", importId, phase, processed, rowsPerSecond));
     }
 }
\ No newline at end of file
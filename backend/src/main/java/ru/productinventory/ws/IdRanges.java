@@ -0,0 +1,49 @@
+package ru.productinventory.ws;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ids collected for a {@link BulkChangeEvent}. Consecutive ids are merged into ranges; past {@value #MAX_RANGES}
+ * ranges only the count is kept.
+ */
+public final class IdRanges {
+    public static final int MAX_RANGES = 64;
+
+    private final List<long[]> ranges = new ArrayList<>();
+    private long count;
+    private boolean countOnly;
+
+    public static IdRanges ofCount(long count) {
+        IdRanges r = new IdRanges();
+        r.count = count;
+        r.countOnly = true;
+        return r;
+    }
+
+    public void add(long id) {
+        count++;
+        if (countOnly) return;
+        if (!ranges.isEmpty()) {
+            long[] last = ranges.get(ranges.size() - 1);
+            if (id == last[1] + 1) {
+                last[1] = id;
+                return;
+            }
+        }
+        if (ranges.size() == MAX_RANGES) {
+            countOnly = true;
+            ranges.clear();
+            return;
+        }
+        ranges.add(new long[]{id, id});
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public List<long[]> ranges() {
+        return countOnly ? null : List.copyOf(ranges);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.productinventory.ws;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data @AllArgsConstructor
+public class ImportProgressEvent {
+    private String entity;
+    private String action;
+    private Number id;
+    private String phase;
+    private long processed;
+    private double rowsPerSecond;
+}
@@ -0,0 +1,8 @@
+-- Leases of queued and running imports. The instance working on an import renews its heartbeat_at; a QUEUED or
+-- RUNNING operation whose lease is missing or has expired belongs to an instance that stopped, and is failed by
+-- the next sweep (a chunked one can then be resumed). Leases of finished operations are removed by the sweep.
+
+create table if not exists import_lease (
+    operation_id bigint primary key references import_operation (id) on delete cascade,
+    heartbeat_at timestamp not null
+);
@@ -0,0 +1,44 @@
+-- Change versions behind the ETags of product, organization and person reads (ConditionalGet). A statement
+-- trigger on each table logs one change_log row per writing transaction, inside that transaction, so a reader sees
+-- a change and its log row together, on the primary and on a replica alike, and every instance sees the same
+-- versions. The version of a type is change_version.version plus the number of its change_log rows; the
+-- application folds the rows into change_version from time to time, which keeps the sum.
+--
+-- After its first row the trigger marks the transaction with a transaction-local setting, so later statements of
+-- the same transaction skip the insert. change_log is insert-only for writers, so they never wait on each other or
+-- conflict under SERIALIZABLE here.
+
+create table if not exists change_version (
+    entity  varchar(32) primary key,
+    version bigint not null
+);
+insert into change_version (entity, version) values ('product', 0), ('organization', 0), ('person', 0)
+on conflict do nothing;
+
+create table if not exists change_log (
+    id     bigint generated always as identity primary key,
+    entity varchar(32) not null
+);
+create index if not exists change_log_entity_idx on change_log (entity);
+
+create or replace function log_change() returns trigger language plpgsql as $$
+begin
+    if coalesce(current_setting('change_log.' || tg_argv[0], true), '') = '' then
+        insert into change_log (entity) values (tg_argv[0]);
+        perform set_config('change_log.' || tg_argv[0], 'logged', true);
+    end if;
+    return null;
+end
+$$;
+
+drop trigger if exists product_change_log on product;
+create trigger product_change_log after insert or update or delete or truncate on product
+    for each statement execute function log_change('product');
+
+drop trigger if exists organization_change_log on organization;
+create trigger organization_change_log after insert or update or delete or truncate on organization
+    for each statement execute function log_change('organization');
+
+drop trigger if exists person_change_log on person;
+create trigger person_change_log after insert or update or delete or truncate on person
+    for each statement execute function log_change('person');
@@ -0,0 +1,9 @@
+-- Outbox of the summary-table deltas (V6). A writing transaction stores its delta here before it commits, so the
+-- delta commits or rolls back with the product changes. Right after the commit the delta is applied and its row
+-- deleted in one transaction; rows left behind by an instance that stopped in between are applied by a periodic
+-- drain, so the summaries cannot drift from product. Writers only insert here.
+
+create table if not exists product_stats_outbox (
+    id    bigint generated always as identity primary key,
+    delta jsonb not null
+);
@@ -0,0 +1,28 @@
+-- Product, organization and person ids move from identity/serial columns to sequences with
+-- increment 50, matching increment_size of the pooled optimizer in the *.hbm.xml mappings.
+-- Identity generation makes Hibernate execute every INSERT on its own; sequences let it batch them.
+--
+-- The pooled optimizer treats a fetched value v as the upper end of the block (v - 49 .. v],
+-- so each sequence is positioned to return max(id) + 50 first. Column defaults keep working
+-- for plain SQL inserts: they take single sequence values, which never fall inside a block.
+
+create sequence if not exists organization_seq increment by 50;
+alter table organization alter column id drop identity if exists;
+alter table organization alter column id set default nextval('organization_seq');
+alter sequence organization_seq owned by organization.id;
+select setval('organization_seq', coalesce(max(id), 0) + 50, false) from organization;
+drop sequence if exists organization_id_seq;
+
+create sequence if not exists person_seq increment by 50;
+alter table person alter column id drop identity if exists;
+alter table person alter column id set default nextval('person_seq');
+alter sequence person_seq owned by person.id;
+select setval('person_seq', coalesce(max(id), 0) + 50, false) from person;
+drop sequence if exists person_id_seq;
+
+create sequence if not exists product_seq increment by 50;
+alter table product alter column id drop identity if exists;
+alter table product alter column id set default nextval('product_seq');
+alter sequence product_seq owned by product.id;
+select setval('product_seq', coalesce(max(id), 0) + 50, false) from product;
+drop sequence if exists product_id_seq;
@@ -0,0 +1,9 @@
+-- Chunked imports commit every import.chunk-size items and keep their progress on the operation row.
+-- A RUNNING operation has no finished_at yet; last_committed_index is the 0-based index of the last
+-- item of the last committed chunk (-1 before the first commit).
+
+alter table import_operation alter column finished_at drop not null;
+alter table import_operation add column if not exists mode varchar(16);
+alter table import_operation add column if not exists last_committed_index integer;
+alter table import_operation add column if not exists source_path varchar(1024);
+alter table import_operation add column if not exists error_message text;
@@ -0,0 +1,33 @@
+-- Stored lookup keys for the business-key checks, so they are index seeks instead of sequential scans
+-- over regexp_replace/lower expressions. The application writes them through the mappings from
+-- NormalizationUtil (canonicalKey / canonicalPartNumber).
+--
+-- The backfill below mirrors NormalizationUtil in SQL: strip Java whitespace, NBSP -> space, collapse runs
+-- of ASCII whitespace, NFC. Case mapping is PostgreSQL's lower()/upper(), which agrees with Java's Locale.ROOT
+-- mapping for ASCII; a row whose non-ASCII key still differs keeps it until its source column is next written
+-- (loading an entity never rewrites the key).
+
+alter table organization add column if not exists full_name_norm varchar(1950);
+alter table person add column if not exists name_norm varchar(255);
+alter table product add column if not exists part_number_norm varchar(255);
+
+create function pg_temp.canonical(s text) returns text language sql immutable as $$
+    select normalize(
+        regexp_replace(
+            replace(btrim(s, E' \t\n\013\f\r\034\035\036\037' || chr(5760) || chr(8192) || chr(8193) || chr(8194)
+                             || chr(8195) || chr(8196) || chr(8197) || chr(8198) || chr(8200) || chr(8201)
+                             || chr(8202) || chr(8232) || chr(8233) || chr(8287) || chr(12288)),
+                    chr(160), ' '),
+            E'[ \t\n\013\f\r]+', ' ', 'g'),
+        NFC)
+$$;
+
+update organization set full_name_norm = lower(pg_temp.canonical(full_name)) where full_name is not null;
+update person set name_norm = lower(pg_temp.canonical(name));
+update product set part_number_norm = upper(regexp_replace(translate(pg_temp.canonical(part_number),
+                                                                     chr(8211) || chr(8212), '--'),
+                                                           E'[ \t\n\013\f\r]*[-_][ \t\n\013\f\r]*', '-', 'g'));
+
+create index if not exists organization_full_name_norm_idx on organization (full_name_norm);
+create index if not exists person_name_norm_idx on person (name_norm);
+create index if not exists product_manufacturer_part_number_norm_idx on product (manufacturer_id, part_number_norm);
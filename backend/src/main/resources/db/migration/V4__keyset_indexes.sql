@@ -0,0 +1,10 @@
+-- Keyset paging orders by (sort column, id) and seeks past the previous page's last row, so each sortable
+-- product column gets a matching composite index. Sorting by owner or manufacturer name goes through a join
+-- and still sorts the matching rows.
+
+create index if not exists product_name_id_idx on product (name, id);
+create index if not exists product_price_id_idx on product (price, id);
+create index if not exists product_rating_id_idx on product (rating, id);
+create index if not exists product_part_number_id_idx on product (part_number, id);
+create index if not exists product_unit_of_measure_id_idx on product (unit_of_measure, id);
+create index if not exists product_creation_date_id_idx on product (creation_date, id);
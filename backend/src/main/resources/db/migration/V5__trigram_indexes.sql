@@ -0,0 +1,18 @@
+-- The list filters are lower(column) like lower('%term%'), which no btree can serve. These expression GIN indexes
+-- let pg_trgm answer them from terms of three characters up; shorter terms are sent as prefixes (see LikePatterns).
+-- Creating the extension needs a role that may do so (superuser or, from PostgreSQL 13, database owner).
+
+create extension if not exists pg_trgm;
+
+create index if not exists product_name_trgm_idx on product using gin (lower(name) gin_trgm_ops);
+create index if not exists product_part_number_trgm_idx on product using gin (lower(part_number) gin_trgm_ops);
+
+create index if not exists organization_name_trgm_idx on organization using gin (lower(name) gin_trgm_ops);
+create index if not exists organization_full_name_trgm_idx on organization using gin (lower(full_name) gin_trgm_ops);
+create index if not exists organization_official_town_name_trgm_idx
+    on organization using gin (lower(official_town_name) gin_trgm_ops);
+create index if not exists organization_postal_town_name_trgm_idx
+    on organization using gin (lower(postal_town_name) gin_trgm_ops);
+
+create index if not exists person_name_trgm_idx on person using gin (lower(name) gin_trgm_ops);
+create index if not exists person_loc_name_trgm_idx on person using gin (lower(loc_name) gin_trgm_ops);
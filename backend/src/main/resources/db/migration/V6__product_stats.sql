@@ -0,0 +1,52 @@
+-- Summary tables behind the /analytics endpoints. The application applies each committed product change to them
+-- as a delta (ProductStatsRepository), so reading an aggregate never scans product. Sums are kept instead of
+-- averages so deltas add up; min/max are recomputed for one manufacturer when a removed value may have been one.
+--
+-- product_owner_stats counts products without owner under owner_id 0, which no person has.
+-- No foreign keys: a row is dropped when its count reaches 0, which may follow the commit that deleted the
+-- organization's or person's last product.
+--
+-- The inserts below fill the tables from the current catalog; truncating the three tables and running them
+-- again rebuilds the aggregates.
+
+create table if not exists product_manufacturer_stats (
+    manufacturer_id integer primary key,
+    product_count   bigint  not null,
+    price_sum       numeric not null,
+    price_min       bigint,
+    price_max       bigint,
+    rating_sum      numeric not null,
+    rating_min      bigint,
+    rating_max      bigint
+);
+create index if not exists product_manufacturer_stats_count_idx
+    on product_manufacturer_stats (product_count desc, manufacturer_id);
+
+create table if not exists product_unit_stats (
+    unit_of_measure varchar(255) primary key,
+    product_count   bigint not null
+);
+
+create table if not exists product_owner_stats (
+    owner_id      bigint primary key,
+    product_count bigint not null
+);
+create index if not exists product_owner_stats_count_idx on product_owner_stats (product_count desc, owner_id);
+
+insert into product_manufacturer_stats
+select manufacturer_id, count(*), sum(price), min(price), max(price), sum(rating), min(rating), max(rating)
+from product
+group by manufacturer_id
+on conflict do nothing;
+
+insert into product_unit_stats
+select unit_of_measure, count(*)
+from product
+group by unit_of_measure
+on conflict do nothing;
+
+insert into product_owner_stats
+select coalesce(owner_id, 0), count(*)
+from product
+group by coalesce(owner_id, 0)
+on conflict do nothing;
@@ -0,0 +1,7 @@
+-- Version columns for optimistic locking (<version> in the *.hbm.xml mappings). Hibernate adds
+-- "and version = ?" to every update and delete and increments the column, so plain CRUD no longer needs
+-- SERIALIZABLE to detect a concurrent change. Rows inserted with plain SQL start at the default.
+
+alter table product add column if not exists version bigint not null default 0;
+alter table organization add column if not exists version bigint not null default 0;
+alter table person add column if not exists version bigint not null default 0;
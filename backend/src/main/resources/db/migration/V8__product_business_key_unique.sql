@@ -0,0 +1,12 @@
+-- One product per (manufacturer, normalized partNumber), enforced by the database. Creates insert with
+-- ON CONFLICT against this index instead of looking the key up first under SERIALIZABLE isolation; updates
+-- and imports that collide fail with a unique violation on product_manufacturer_part_number_norm_key.
+--
+-- The unique index also serves the business-key lookups, so it replaces the plain index from V3.
+-- Building it fails if duplicates already exist; they are listed by
+--   select manufacturer_id, part_number_norm, array_agg(id order by id) from product
+--   group by 1, 2 having count(*) > 1;
+
+create unique index if not exists product_manufacturer_part_number_norm_key
+    on product (manufacturer_id, part_number_norm);
+drop index if exists product_manufacturer_part_number_norm_idx;
@@ -0,0 +1,4 @@
+-- Every resume of a chunked import starts a new attempt. Checkpoints and the final status are written only by
+-- the run of the current attempt, so a run that lost its operation to a resume cannot overwrite the new run.
+
+alter table import_operation add column if not exists attempt integer not null default 0;
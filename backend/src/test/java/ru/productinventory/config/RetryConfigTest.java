@@ -0,0 +1,95 @@
+package ru.productinventory.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.mock.env.MockEnvironment;
+import ru.productinventory.dto.metrics.RetryMetricsDTO;
+import ru.productinventory.service.RetryMetrics;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryConfigTest {
+
+    /** Fails with a serialization failure until {@code failures} calls have failed. */
+    public static class Writer {
+        final AtomicInteger calls = new AtomicInteger();
+        int failures;
+        RuntimeException failure = serializationFailure();
+
+        public String write() {
+            if (calls.incrementAndGet() <= failures) throw failure;
+            return "done";
+        }
+    }
+
+    static RuntimeException serializationFailure() {
+        return new CannotAcquireLockException("could not serialize",
+                new SQLException("could not serialize access due to concurrent update", "40001"));
+    }
+
+    RetryMetrics metrics;
+    Writer target;
+    Writer writer;
+
+    @BeforeEach
+    void setUp() {
+        var env = new MockEnvironment()
+                .withProperty("retry.serialization.max-attempts", "3")
+                .withProperty("retry.serialization.initial-interval-ms", "1")
+                .withProperty("retry.serialization.max-interval-ms", "2");
+        var config = new RetryConfig(env);
+        metrics = new RetryMetrics();
+        var interceptor = config.serializationRetry(config.serializationRetryTemplate(metrics));
+
+        target = new Writer();
+        var factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        writer = (Writer) factory.getProxy();
+    }
+
+    private RetryMetricsDTO counters() {
+        return metrics.operations().get(0);
+    }
+
+    @Test
+    void serializationFailureIsRetriedUntilItSucceeds() {
+        target.failures = 2;
+
+        assertEquals("done", writer.write());
+        assertEquals(3, target.calls.get());
+        assertEquals(new RetryMetricsDTO("Writer.write", 1, 2, 1, 0), counters());
+    }
+
+    @Test
+    void attemptsRunOutAndTheFailureIsRethrown() {
+        target.failures = 5;
+
+        assertThrows(CannotAcquireLockException.class, () -> writer.write());
+        assertEquals(3, target.calls.get());
+        assertEquals(new RetryMetricsDTO("Writer.write", 1, 2, 0, 1), counters());
+    }
+
+    @Test
+    void deadlockIsRetried() {
+        target.failures = 1;
+        target.failure = new CannotAcquireLockException("deadlock", new SQLException("deadlock detected", "40P01"));
+
+        assertEquals("done", writer.write());
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        target.failures = 1;
+        target.failure = new IllegalArgumentException("Product not found");
+
+        assertThrows(IllegalArgumentException.class, () -> writer.write());
+        assertEquals(1, target.calls.get());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.productinventory.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.productinventory.service.ChangeVersions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConditionalGetTest {
+
+    @Mock
+    ChangeVersions versions;
+
+    ConditionalGet conditional;
+    AtomicInteger reads;
+    Supplier<String> body;
+
+    @BeforeEach
+    void setUp() {
+        conditional = new ConditionalGet(versions);
+        reads = new AtomicInteger();
+        body = () -> "body-" + reads.incrementAndGet();
+    }
+
+    private static ServletWebRequest get(String ifNoneMatch, MockHttpServletResponse response) {
+        var request = new MockHttpServletRequest("GET", "/product/1");
+        if (ifNoneMatch != null) request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, response);
+    }
+
+    @Test
+    void firstReadReturnsBodyWithTag() {
+        when(versions.stamp("product", "organization")).thenReturn(new ChangeVersions.Stamp("W/\"3-7\""));
+        var response = new MockHttpServletResponse();
+
+        var entity = conditional.respond(get(null, response), body, "product", "organization");
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals("body-1", entity.getBody());
+        assertEquals("no-cache", entity.getHeaders().getCacheControl());
+        assertEquals("W/\"3-7\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void matchingTagGets304WithoutReadingTheBody() {
+        when(versions.stamp("product")).thenReturn(new ChangeVersions.Stamp("W/\"3\""));
+
+        var entity = conditional.respond(get("W/\"3\"", new MockHttpServletResponse()), body, "product");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, entity.getStatusCode());
+        assertNull(entity.getBody());
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void changedVersionReturnsTheNewBody() {
+        when(versions.stamp("product")).thenReturn(new ChangeVersions.Stamp("W/\"4\""));
+        var response = new MockHttpServletResponse();
+
+        var entity = conditional.respond(get("W/\"3\"", response), body, "product");
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals("body-1", entity.getBody());
+        assertEquals("W/\"4\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void ifModifiedSinceAloneNeverGets304() {
+        when(versions.stamp("person")).thenReturn(new ChangeVersions.Stamp("W/\"1\""));
+        var request = new MockHttpServletRequest("GET", "/person/1");
+        request.addHeader("If-Modified-Since", System.currentTimeMillis() + 60_000);
+
+        var entity = conditional.respond(new ServletWebRequest(request, new MockHttpServletResponse()), body,
+                "person");
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals(1, reads.get());
+    }
+}
@@ -0,0 +1,47 @@
+package ru.productinventory.dto.batch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRequestDTOTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    private BatchRequestDTO<String, Long> read(String body) throws Exception {
+        return json.readValue(body, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    void nullListsAreEmpty() throws Exception {
+        var req = read("{\"creates\": null, \"updates\": null, \"deletes\": null}");
+
+        assertEquals(List.of(), req.getCreates());
+        assertEquals(List.of(), req.getUpdates());
+        assertEquals(List.of(), req.getDeletes());
+        assertEquals(0, req.size());
+    }
+
+    @Test
+    void absentListsAreEmpty() throws Exception {
+        var req = read("{\"deletes\": [4, 5]}");
+
+        assertEquals(List.of(), req.getCreates());
+        assertEquals(List.of(), req.getUpdates());
+        assertEquals(List.of(4L, 5L), req.getDeletes());
+        assertEquals(2, req.size());
+    }
+
+    @Test
+    void sizeCountsEveryList() throws Exception {
+        var req = read("{\"creates\": [\"a\", null], \"updates\": [{\"id\": 1, \"item\": \"b\"}], \"deletes\": [2]}");
+
+        assertEquals(4, req.size());
+        assertEquals(new BatchUpdateDTO<>(1L, "b"), req.getUpdates().get(0));
+    }
+}
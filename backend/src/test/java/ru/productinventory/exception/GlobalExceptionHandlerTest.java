@@ -0,0 +1,74 @@
+package ru.productinventory.exception;
+
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionSystemException;
+import ru.productinventory.model.Product;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/product/7");
+
+    @Test
+    void staleVersionIsAConflictOnVersion() {
+        var ex = new ObjectOptimisticLockingFailureException(Product.class, 7L);
+
+        var response = handler.handleConcurrentChange(ex, request);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(409, response.getBody().getStatus());
+        assertEquals("version", response.getBody().getDetails().get(0).getFieldPath());
+        assertEquals("/product/7", response.getBody().getPath());
+    }
+
+    @Test
+    void hibernateStaleStateIsAConflict() {
+        var response = handler.handleConcurrentChange(
+                new StaleObjectStateException(Product.class.getName(), 7L), request);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void serializationFailureLeftAfterRetriesIsAConflict() {
+        var ex = new CannotAcquireLockException("could not serialize",
+                new SQLException("could not serialize access", "40001"));
+
+        var response = handler.handleConcurrentChange(ex, request);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void serializationFailureAtCommitIsAConflict() {
+        var ex = new TransactionSystemException("commit failed");
+        ex.initCause(new SQLException("could not serialize access", "40001"));
+
+        var response = handler.handleTxRollback(ex, request);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void duplicateBusinessKeyIsABadRequest() {
+        var ex = new TransactionSystemException("commit failed");
+        ex.initCause(new SQLException(
+                "duplicate key value violates unique constraint \"product_manufacturer_part_number_norm_key\"",
+                "23505"));
+
+        var response = handler.handleTxRollback(ex, request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Product with same manufacturer and partNumber already exists",
+                response.getBody().getMessage());
+    }
+}
@@ -0,0 +1,135 @@
+package ru.productinventory.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.productinventory.dto.batch.BatchRequestDTO;
+import ru.productinventory.dto.batch.BatchUpdateDTO;
+import ru.productinventory.dto.imports.ValidationError;
+import ru.productinventory.ws.ChangePublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BatchSupportTest {
+
+    @Mock
+    ChangePublisher changes;
+
+    BatchSupport batches;
+    List<ValidationError> errors;
+
+    @BeforeEach
+    void setUp() {
+        batches = new BatchSupport(changes, 3);
+        errors = new ArrayList<>();
+    }
+
+    private static String describe(ValidationError e) {
+        return e.getFieldPath() + "[" + e.getIndex() + "]: " + e.getMessage();
+    }
+
+    private List<String> errors() {
+        return errors.stream().map(BatchSupportTest::describe).toList();
+    }
+
+    private static BatchRequestDTO<String, Long> request(List<String> creates, List<BatchUpdateDTO<String, Long>> updates,
+                                                         List<Long> deletes) {
+        var req = new BatchRequestDTO<String, Long>();
+        req.setCreates(creates);
+        req.setUpdates(updates);
+        req.setDeletes(deletes);
+        return req;
+    }
+
+    @Test
+    void batchWithNullListsPassesTheSizeCheck() {
+        var req = request(null, null, null);
+
+        assertDoesNotThrow(() -> batches.checkSize(req));
+        assertEquals(Map.of(), batches.load(req, ids -> fail("nothing to load"), "Product not found", errors));
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        var req = request(List.of("a", "b"), List.of(new BatchUpdateDTO<>(1L, "c")), List.of(2L));
+
+        var e = assertThrows(IllegalArgumentException.class, () -> batches.checkSize(req));
+        assertEquals("Batch has 4 items; at most 3 are allowed", e.getMessage());
+    }
+
+    @Test
+    void everyBadItemIsReportedAtItsPosition() {
+        Function<String, String> prepare = s -> {
+            if (s.isBlank()) throw new IllegalArgumentException("Name is required");
+            return s.toUpperCase();
+        };
+
+        var prepared = batches.prepare(Arrays.asList("a", null, " ", "d"), "creates", prepare, errors);
+
+        assertEquals(Arrays.asList("A", null, null, "D"), prepared);
+        assertEquals(List.of("creates[1]: item required", "creates[2]: Name is required"), errors());
+    }
+
+    @Test
+    void missingRepeatedAndUnknownIdsAreReported() {
+        var req = request(List.of(),
+                Arrays.asList(new BatchUpdateDTO<>(1L, "a"), new BatchUpdateDTO<>(null, "b"), null,
+                        new BatchUpdateDTO<>(9L, "c")),
+                Arrays.asList(2L, 1L, null));
+        List<List<Long>> loads = new ArrayList<>();
+
+        var rows = batches.load(req, ids -> {
+            loads.add(ids);
+            return ids.stream().map(id -> id == 9L ? null : "row" + id).toList();
+        }, "Product not found", errors);
+
+        assertEquals(List.of(List.of(1L, 9L, 2L)), loads);
+        assertEquals(Map.of(1L, "row1", 2L, "row2"), rows);
+        assertEquals(List.of(
+                "updates[1]: id required",
+                "updates[2]: id required",
+                "deletes[1]: id 1 appears more than once in the batch",
+                "deletes[2]: id required",
+                "updates[3]: Product not found"), errors());
+    }
+
+    @Test
+    void staleVersionIsReported() {
+        List<BatchUpdateDTO<String, Long>> updates = List.of(new BatchUpdateDTO<>(1L, "v3"),
+                new BatchUpdateDTO<>(2L, "v5"), new BatchUpdateDTO<>(3L, "none"));
+        Map<Long, Long> rows = Map.of(1L, 3L, 2L, 4L, 3L, 8L);
+
+        batches.checkVersions(updates, rows,
+                item -> item.startsWith("v") ? Long.valueOf(item.substring(1)) : null, Long::longValue, errors);
+
+        assertEquals(List.of("updates[1]: version 5 is stale, current version is 4"), errors());
+    }
+
+    @Test
+    void mixedBatchIsBroadcastAsOneUpdate() {
+        batches.broadcast("product", List.of(7L), List.of(3L), List.of());
+
+        verify(changes).broadcastBulk(eq("product"), eq("updated"), isNull(), any());
+    }
+
+    @Test
+    void createOnlyBatchIsBroadcastAsCreated() {
+        batches.broadcast("person", List.of(7L, 8L), List.of(), List.of());
+
+        verify(changes).broadcastBulk(eq("person"), eq("created"), isNull(), any());
+    }
+}
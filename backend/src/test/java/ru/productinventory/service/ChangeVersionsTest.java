@@ -0,0 +1,47 @@
+package ru.productinventory.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import ru.productinventory.repository.ChangeVersionRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeVersionsTest {
+
+    @Mock
+    ChangeVersionRepository repo;
+    @Mock
+    TaskScheduler scheduler;
+
+    @Test
+    void tagListsVersionsInRequestedOrder() {
+        when(repo.versions(List.of("product", "organization", "person")))
+                .thenReturn(Map.of("person", 2L, "product", 15L, "organization", 4L));
+
+        var stamp = new ChangeVersions(repo, scheduler).stamp("product", "organization", "person");
+
+        assertEquals("W/\"15-4-2\"", stamp.etag());
+    }
+
+    @Test
+    void unknownTypeCountsAsVersionZero() {
+        when(repo.versions(List.of("person"))).thenReturn(Map.of());
+
+        assertEquals("W/\"0\"", new ChangeVersions(repo, scheduler).stamp("person").etag());
+    }
+
+    @Test
+    void foldFailureIsOnlyLogged() {
+        doThrow(new IllegalStateException("db down")).when(repo).fold();
+
+        assertDoesNotThrow(() -> new ChangeVersions(repo, scheduler).fold());
+    }
+}
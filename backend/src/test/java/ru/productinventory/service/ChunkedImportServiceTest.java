@@ -0,0 +1,158 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.model.ImportOperation;
+import ru.productinventory.model.ImportStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedImportServiceTest {
+
+    @Mock
+    ProductImportService importService;
+    @Mock
+    ImportHistoryService history;
+    @Mock
+    ImportLeases leases;
+
+    @TempDir
+    Path dir;
+
+    ChunkedImportService chunked;
+
+    @BeforeEach
+    void setUp() {
+        chunked = new ChunkedImportService(importService, history, leases, new ObjectMapper());
+        ReflectionTestUtils.setField(chunked, "chunkSize", 3);
+        ReflectionTestUtils.setField(chunked, "spoolDir", dir.toString());
+    }
+
+    private Path items(String name, int n) throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"name\":\"p").append(i).append("\"}");
+        }
+        return Files.writeString(dir.resolve(name), json.append(']'));
+    }
+
+    private ImportOperation failedAt(int lastCommittedIndex, Path source, int attempt) {
+        return ImportOperation.builder()
+                .id(7L)
+                .status(ImportStatus.FAILED)
+                .mode(ImportMode.CHUNKED)
+                .createdCount(lastCommittedIndex + 1)
+                .lastCommittedIndex(lastCommittedIndex)
+                .sourcePath(source.toString())
+                .attempt(attempt)
+                .build();
+    }
+
+    private static ImportOperation reopened(ImportOperation op, Path source) {
+        return ImportOperation.builder()
+                .id(op.getId())
+                .status(ImportStatus.RUNNING)
+                .mode(op.getMode())
+                .createdCount(op.getCreatedCount())
+                .lastCommittedIndex(op.getLastCommittedIndex())
+                .sourcePath(source.toString())
+                .attempt(op.getAttempt() + 1)
+                .build();
+    }
+
+    @Test
+    void resumeContinuesAfterCheckpointAsNewAttempt() throws IOException {
+        Path source = items("import-1.json", 10);
+        var op = failedAt(4, source, 0);
+        when(history.find(7L)).thenReturn(op);
+        when(history.reopenChunked(7L, null)).thenReturn(reopened(op, source));
+        // the service reuses its chunk list, so chunks are recorded when they are imported
+        List<String> chunks = new ArrayList<>();
+        when(importService.importCheckpointedChunk(eq(7L), eq(1), anyList(), anyInt())).thenAnswer(inv -> {
+            List<?> chunk = inv.getArgument(2);
+            chunks.add(inv.getArgument(3) + "+" + chunk.size());
+            return chunk.size();
+        });
+
+        var r = chunked.resume(7L, null);
+
+        assertTrue(r.getErrors().isEmpty());
+        assertEquals(10, r.getCreatedCount());
+        assertEquals(List.of("5+3", "8+2"), chunks);
+        verify(history).completeRun(7L, 1);
+        verify(leases).hold(7L);
+        verify(leases).release(7L);
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void rejectedItemIsReportedAtItsOwnIndex() throws IOException {
+        Path source = items("import-1.json", 10);
+        var op = failedAt(2, source, 0);
+        when(history.find(7L)).thenReturn(op);
+        when(history.reopenChunked(7L, null)).thenReturn(reopened(op, source));
+        when(importService.importCheckpointedChunk(eq(7L), eq(1), anyList(), eq(3))).thenReturn(3);
+        when(importService.importCheckpointedChunk(eq(7L), eq(1), anyList(), eq(6)))
+                .thenThrow(new ProductImportService.ItemFailure(7, new IllegalStateException("duplicate")));
+
+        var r = chunked.resume(7L, null);
+
+        assertEquals(1, r.getErrors().size());
+        assertEquals(7, r.getErrors().get(0).getIndex());
+        assertEquals("duplicate", r.getErrors().get(0).getMessage());
+        assertEquals(6, r.getCreatedCount());
+        verify(history).failRun(7L, 1, "duplicate");
+        verify(history, never()).completeRun(anyLong(), anyInt());
+        assertTrue(Files.exists(source), "a failed import keeps its source for the next resume");
+    }
+
+    @Test
+    void replacementDeletesPreviousSourceOnlyAfterTakeover() throws IOException {
+        Path previous = items("import-1.json", 4);
+        Path replacement = items("import-2.json", 4);
+        var op = failedAt(2, previous, 0);
+        when(history.find(7L)).thenReturn(op);
+        when(history.reopenChunked(7L, replacement.toString())).thenReturn(reopened(op, replacement));
+        when(importService.importCheckpointedChunk(eq(7L), eq(1), anyList(), eq(3))).thenReturn(1);
+
+        var r = chunked.resume(7L, replacement);
+
+        assertEquals(4, r.getCreatedCount());
+        assertFalse(Files.exists(previous));
+    }
+
+    @Test
+    void rejectedResumeKeepsPreviousSourceAndDropsReplacement() throws IOException {
+        Path previous = items("import-1.json", 4);
+        Path replacement = items("import-2.json", 4);
+        var op = failedAt(2, previous, 0);
+        op.setStatus(ImportStatus.RUNNING);
+        when(history.find(7L)).thenReturn(op);
+        when(history.reopenChunked(7L, replacement.toString()))
+                .thenThrow(new IllegalStateException("Import operation 7 is RUNNING; only a failed import can be resumed"));
+
+        assertThrows(IllegalStateException.class, () -> chunked.resume(7L, replacement));
+
+        assertTrue(Files.exists(previous), "the running import still reads its source");
+        assertFalse(Files.exists(replacement));
+        verifyNoInteractions(importService);
+        verify(history, never()).failRun(anyLong(), anyInt(), anyString());
+    }
+}
@@ -0,0 +1,138 @@
+package ru.productinventory.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.model.ImportMode;
+import ru.productinventory.model.ImportOperation;
+import ru.productinventory.model.ImportStatus;
+import ru.productinventory.repository.ImportOperationRepository;
+import ru.productinventory.ws.ChangePublisher;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportHistoryServiceTest {
+
+    @Mock
+    ImportOperationRepository repo;
+    @Mock
+    ChangePublisher changes;
+    @InjectMocks
+    ImportHistoryService history;
+
+    @BeforeEach
+    void startSynchronization() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private ImportOperation chunked(ImportStatus status, int attempt, int lastCommittedIndex) {
+        var op = ImportOperation.builder()
+                .id(7L)
+                .status(status)
+                .mode(ImportMode.CHUNKED)
+                .createdCount(lastCommittedIndex + 1)
+                .lastCommittedIndex(lastCommittedIndex)
+                .sourcePath("/spool/import-1.json")
+                .attempt(attempt)
+                .build();
+        when(repo.findById(7L)).thenReturn(op);
+        return op;
+    }
+
+    @Test
+    void resumeOfRunningImportIsRejected() {
+        var op = chunked(ImportStatus.RUNNING, 0, 499);
+
+        var e = assertThrows(IllegalStateException.class, () -> history.reopenChunked(7L, "/spool/import-2.json"));
+        assertTrue(e.getMessage().contains("only a failed import can be resumed"));
+        assertEquals(0, op.getAttempt());
+        assertEquals("/spool/import-1.json", op.getSourcePath());
+    }
+
+    @Test
+    void resumeOfCompletedImportIsRejected() {
+        chunked(ImportStatus.SUCCESS, 0, 999);
+
+        assertThrows(IllegalStateException.class, () -> history.reopenChunked(7L, null));
+    }
+
+    @Test
+    void resumeOfFailedImportStartsNewAttempt() {
+        var op = chunked(ImportStatus.FAILED, 1, 499);
+        op.setErrorMessage("boom");
+
+        history.reopenChunked(7L, "/spool/import-2.json");
+
+        assertEquals(ImportStatus.RUNNING, op.getStatus());
+        assertEquals(2, op.getAttempt());
+        assertEquals("/spool/import-2.json", op.getSourcePath());
+        assertNull(op.getErrorMessage());
+        assertEquals(499, op.getLastCommittedIndex());
+    }
+
+    @Test
+    void checkpointAdvancesCurrentAttempt() {
+        var op = chunked(ImportStatus.RUNNING, 1, 499);
+
+        history.checkpoint(7L, 1, 500, 999, 480);
+
+        assertEquals(999, op.getLastCommittedIndex());
+        assertEquals(980, op.getCreatedCount());
+    }
+
+    @Test
+    void checkpointOfReplacedAttemptFails() {
+        var op = chunked(ImportStatus.RUNNING, 2, 499);
+
+        assertThrows(IllegalStateException.class, () -> history.checkpoint(7L, 1, 500, 999, 500));
+        assertEquals(499, op.getLastCommittedIndex());
+    }
+
+    @Test
+    void checkpointOutOfSequenceFails() {
+        chunked(ImportStatus.RUNNING, 0, 499);
+
+        assertThrows(IllegalStateException.class, () -> history.checkpoint(7L, 0, 1000, 1499, 500));
+    }
+
+    @Test
+    void failureOfReplacedAttemptLeavesOperationRunning() {
+        var op = chunked(ImportStatus.RUNNING, 2, 499);
+
+        history.failRun(7L, 1, "resumed concurrently");
+
+        assertEquals(ImportStatus.RUNNING, op.getStatus());
+        assertNull(op.getErrorMessage());
+    }
+
+    @Test
+    void failureOfCurrentAttemptFailsOperation() {
+        var op = chunked(ImportStatus.RUNNING, 2, 499);
+
+        history.failRun(7L, 2, "boom");
+
+        assertEquals(ImportStatus.FAILED, op.getStatus());
+        assertEquals("boom", op.getErrorMessage());
+        assertNotNull(op.getFinishedAt());
+    }
+
+    @Test
+    void completionOfReplacedAttemptFails() {
+        var op = chunked(ImportStatus.RUNNING, 2, 999);
+
+        assertThrows(IllegalStateException.class, () -> history.completeRun(7L, 1));
+        assertEquals(ImportStatus.RUNNING, op.getStatus());
+    }
+}
@@ -0,0 +1,96 @@
+package ru.productinventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.productinventory.dto.imports.ProductImportDTO;
+import ru.productinventory.dto.imports.ValidationError;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImportValidatorTest {
+
+    private static final String TOO_MANY = "Too many validation errors, only the first 5 are reported";
+
+    ValidatorFactory validators;
+    ThreadPoolTaskExecutor executor;
+    ProductImportValidator importValidator;
+
+    @BeforeEach
+    void setUp() {
+        validators = Validation.buildDefaultValidatorFactory();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+        importValidator = new ProductImportValidator(new ObjectMapper(), validators.getValidator(), executor);
+        ReflectionTestUtils.setField(importValidator, "chunkSize", 2);
+        ReflectionTestUtils.setField(importValidator, "maxErrors", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        validators.close();
+    }
+
+    /** {@code n} null items: exactly one error each. */
+    private static List<ProductImportDTO> invalid(int n) {
+        return Collections.nCopies(n, null);
+    }
+
+    private static List<Integer> indexes(List<ValidationError> errors) {
+        return errors.stream().map(ValidationError::getIndex).toList();
+    }
+
+    @Test
+    void errorsBelowLimitAreAllReportedInOrder() {
+        var errors = importValidator.validate(invalid(4));
+
+        assertEquals(List.of(0, 1, 2, 3), indexes(errors));
+    }
+
+    @Test
+    void exactlyLimitErrorsAreNotMarkedAsTruncated() {
+        var errors = importValidator.validate(invalid(5));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), indexes(errors));
+        assertTrue(errors.stream().noneMatch(e -> TOO_MANY.equals(e.getMessage())));
+    }
+
+    @Test
+    void errorBeyondLimitTruncatesAndMarks() {
+        var errors = importValidator.validate(invalid(6));
+
+        assertEquals(6, errors.size());
+        assertEquals(List.of(0, 1, 2, 3, 4), indexes(errors.subList(0, 5)));
+        assertEquals(-1, errors.get(5).getIndex());
+        assertEquals(TOO_MANY, errors.get(5).getMessage());
+    }
+
+    @Test
+    void truncationKeepsItemOrderAcrossParallelChunks() {
+        var errors = importValidator.validate(invalid(100));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), indexes(errors.subList(0, 5)));
+        assertEquals(TOO_MANY, errors.get(5).getMessage());
+    }
+
+    @Test
+    void noLimitWhenMaxErrorsIsZero() {
+        ReflectionTestUtils.setField(importValidator, "maxErrors", 0);
+
+        var errors = importValidator.validate(invalid(40));
+
+        assertEquals(IntStream.range(0, 40).boxed().toList(), indexes(errors));
+    }
+}
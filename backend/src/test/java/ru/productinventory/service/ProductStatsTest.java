@@ -0,0 +1,109 @@
+package ru.productinventory.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.productinventory.model.Organization;
+import ru.productinventory.model.Product;
+import ru.productinventory.model.UnitOfMeasure;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductStatsTest {
+
+    @Mock
+    AnalyticsService analytics;
+    @Mock
+    TaskScheduler scheduler;
+
+    ProductStats stats;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+        stats = new ProductStats(analytics, scheduler);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Product product() {
+        var org = new Organization();
+        org.setId(3);
+        var p = new Product();
+        p.setManufacturer(org);
+        p.setUnitOfMeasure(UnitOfMeasure.LITERS);
+        p.setPrice(10);
+        p.setRating(2);
+        return p;
+    }
+
+    private static TransactionSynchronization pending() {
+        return TransactionSynchronizationManager.getSynchronizations().get(0);
+    }
+
+    @Test
+    void deltaIsQueuedBeforeCommitAndAppliedAfter() {
+        when(analytics.enqueue(any())).thenReturn(41L);
+        stats.added(product());
+        var delta = stats.pending();
+
+        pending().beforeCommit(false);
+        verify(analytics).enqueue(delta);
+        verify(analytics, never()).applyQueued(anyLong(), any());
+
+        pending().afterCommit();
+        verify(analytics).applyQueued(41L, delta);
+    }
+
+    @Test
+    void emptyDeltaIsNeitherQueuedNorApplied() {
+        stats.pending();
+
+        pending().beforeCommit(false);
+        pending().afterCommit();
+
+        verifyNoInteractions(analytics);
+    }
+
+    @Test
+    void failedApplyIsLeftToTheDrain() {
+        when(analytics.enqueue(any())).thenReturn(41L);
+        doThrow(new IllegalStateException("db down")).when(analytics).applyQueued(eq(41L), any());
+        stats.added(product());
+        pending().beforeCommit(false);
+
+        assertDoesNotThrow(() -> pending().afterCommit());
+    }
+
+    @Test
+    void drainRunsUntilTheOutboxIsEmpty() {
+        when(analytics.drainQueued(anyInt())).thenReturn(100, 100, 7);
+
+        stats.drain();
+
+        verify(analytics, times(3)).drainQueued(100);
+    }
+
+    @Test
+    void changesOutsideATransactionAreRejected() {
+        TransactionSynchronizationManager.clearSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> stats.added(product()));
+        } finally {
+            TransactionSynchronizationManager.initSynchronization();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.productinventory.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NormalizationUtilTest {
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    void keysDoNotDependOnTheDefaultLocale() {
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+
+        assertEquals("istanbul ink", NormalizationUtil.canonicalKey("  ISTANBUL  INK ", true));
+        assertEquals("çinar", NormalizationUtil.canonicalKey("ÇINAR", true));
+        assertEquals("AI-7", NormalizationUtil.canonicalPartNumber("ai _ 7"));
+        assertEquals("ÇI-7", NormalizationUtil.canonicalPartNumber("çi– 7"));
+    }
+}
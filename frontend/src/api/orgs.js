@@ -1,7 +1,7 @@
 
 import { api, withErrors } from './client'
 export async function listOrgs({ page = 0, size = 20, sort = 'id', dir = 'asc', filters = {} } = {}) {
-  const params = { page, size, sort, dir }
+  const params = { page, size, sort, dir, count: 'cached' }
   if (filters.name)         params.name = filters.name
   if (filters.officialTownName) params.officialTownName = filters.officialTownName
   if (filters.postalTownName)   params.postalTownName   = filters.postalTownName
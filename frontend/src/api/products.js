@@ -18,7 +18,7 @@ function logRequest(method, path, { params, data } = {}) {
 }
 
 export async function listProducts({ page = 0, size = 20, sort = 'id', dir = 'asc', filters = {} } = {}) {
-  const params = { page, size, sort, dir }
+  const params = { page, size, sort, dir, count: 'cached' }
   if (filters.name)        params.name = filters.name
   if (filters.partNumber)  params.partNumber = filters.partNumber
   if (filters.unitLike)    params.unit = filters.unitLike